@@ -1,13 +1,32 @@
 package common;
 
+import functions.BatchGenerator;
+import functions.BatchSolver;
+import functions.BeamSolver;
 import functions.Checker;
+import functions.SolutionCache;
 import functions.Solver;
+import functions.Tablebase;
 import layouts.BHLayout;
+import layouts.BinaryLayout;
+import layouts.LayoutParser;
 import layouts.WHLayout;
+import types.Heuristic;
+import types.MoveOrdering;
 
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Scanner;
 
 // Starter by Ian Gent, Sep 2021
@@ -26,37 +45,97 @@ public class BHMain {
 
     public static void printUsage() {
         System.out.println("Input not recognised.  Usage is:");
-        System.out.println("java BHmain GEN|CHECK|SOLVE|CHECKWORM|SOLVEWORM <arguments>"  );
+        System.out.println("java BHmain GEN|CHECK|SOLVE|CHECKWORM|SOLVEWORM|SOLVEBATCH|SOLVEBATCHWORM|SOLVEBEAM|SOLVEBEAMWORM|GENBATCH|TABLEBASE|TOBINARY|TOTEXT <arguments>"  );
         System.out.println("     GEN arguments are seed [numcards=51] [numranks=13] [numsuits=4] [numpiles=17]");
         System.out.println("                       all except seed may be omitted, defaults shown");
+        System.out.println("     GENBATCH arguments are firstseed lastseed [numcards=51] [numranks=13] [numsuits=4] [numpiles=17] [format=TEXT] [threads]");
+        System.out.println("                     deals every seed for every deck, numcards to numpiles may be comma separated lists");
+        System.out.println("                     format is TEXT, as printed by GEN, or BINARY");
+        System.out.println("                     threads defaults to one per processor");
         System.out.println("     CHECK/CHECKWORM argument is file1 [file2]");
         System.out.println("                     if file1 - then stdin is used");
         System.out.println("                     if file2 is ommitted or is - then stdin is used");
         System.out.println("                     at least one of file1/file2 must be a filename and not stdin");
-        System.out.println("     SOLVE/SOLVEWORM argument is [file]");
+        System.out.println("     SOLVE/SOLVEWORM arguments are [file] [ordering]");
         System.out.println("                     if file is ommitted or is - then stdin is used");
+        System.out.println("                     ordering is PILE (default), TALLEST, BURIED or HISTORY");
+        System.out.println("                     with -Dbh.cache=file results are kept in and answered from file");
+        System.out.println("                     with -Dbh.tablebase=file SOLVE looks endgames up in a file made by TABLEBASE");
+        System.out.println("     SOLVEBATCH/SOLVEBATCHWORM arguments are [source] [threads]");
+        System.out.println("                     source is a file or directory of layouts, or - for stdin (default)");
+        System.out.println("                     threads defaults to one per processor");
+        System.out.println("     SOLVEBEAM/SOLVEBEAMWORM arguments are [file] [width=256] [heuristic=MOBILITY]");
+        System.out.println("                     if file is ommitted or is - then stdin is used");
+        System.out.println("                     heuristic is CARDS, STUCK or MOBILITY");
+        System.out.println("                     prints UNKNOWN if no solution is found after states were dropped");
+        System.out.println("     TABLEBASE arguments are file [cards=6] [numranks=13] [numsuits=4]");
+        System.out.println("                     stores every solvable black hole position with at most cards left");
+        System.out.println("     TOBINARY arguments are source target");
+        System.out.println("                     writes the layout in source, or stdin if it is -, to target in binary");
+        System.out.println("     TOTEXT arguments are source [target]");
+        System.out.println("                     writes the layout in source as text to target, or stdout if it is omitted");
+        System.out.println("     any layout file may be binary, which is read in place without parsing");
     }
 
 
     public static ArrayList<Integer> readIntArray(String filename) {
-        // File opening sample code from
-        // https://www.w3schools.com/java/java_files_read.asp
-        ArrayList<Integer> result  ;
-        Scanner reader;
+        ArrayList<Integer> result = new ArrayList<Integer>(0);
+        try (FileChannel channel = new FileInputStream(filename).getChannel()) {
+            LayoutParser parser = new LayoutParser(channel);
+            while (parser.hasNext()) {
+                result.add(parser.nextInt());
+            }
+        }
+        catch (LayoutParser.MalformedLayoutException e) {
+            // Stop at the first value which is not a number
+        }
+        catch (FileNotFoundException e) {
+            System.out.println("File not found");
+            e.printStackTrace();
+        }
+        catch (IOException e) {
+            System.err.println(filename + ": " + e.getMessage());
+        }
+        return result;
+
+    }
+
+
+    /**
+     * Reads a layout from a text or binary file, without boxing its cards, see LayoutParser and BinaryLayout
+     * @param filename
+     * @return the layout, which is empty if the file cannot be opened
+     */
+    public static BHLayout readLayout(String filename) {
         try {
             File file = new File(filename);
-            reader = new Scanner(file);
-            result=readIntArray(reader);
-            reader.close();
-            return result;
+            return BinaryLayout.isBinary(file) ? BinaryLayout.read(file) : LayoutParser.read(file);
         }
         catch (FileNotFoundException e) {
             System.out.println("File not found");
             e.printStackTrace();
         }
-        // drop through case
-        return new ArrayList<Integer>(0);
+        catch (IOException e) {
+            System.err.println(filename + ": " + e.getMessage());
+            System.exit(BHLayout.ERR);
+        }
+        return new BHLayout(new ArrayList<Integer>(0));
+    }
 
+    /**
+     * Reads a layout from a stream, see LayoutParser
+     * @param in
+     * @return the layout
+     */
+    public static BHLayout readLayout(InputStream in) {
+        try {
+            return new LayoutParser(in).readLayout();
+        }
+        catch (IOException e) {
+            System.err.println("stdin: " + e.getMessage());
+            System.exit(BHLayout.ERR);
+        }
+        return new BHLayout(new ArrayList<Integer>(0));
     }
 
 
@@ -69,6 +148,51 @@ public class BHMain {
     }
 
 
+    /**
+     * Runs a solver, answering from the cache named by the bh.cache property instead if it holds the layout
+     * @param solver solver for the layout
+     * @param layout starting layout
+     * @param isWorm
+     */
+    public static void solveCached(Solver solver, BHLayout layout, boolean isWorm) {
+        SolutionCache cache = SolutionCache.fromProperty();
+        if (cache == null) {
+            solver.run();
+            return;
+        }
+        try (SolutionCache open = cache) {
+            if (!open.print(layout, isWorm)) {
+                solver.run();
+                open.store(layout, isWorm, solver);
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Solution cache unavailable: " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Writes generated layouts to stdout through one channel, see BatchGenerator
+     * @param generator
+     * @param decks
+     * @param firstSeed
+     * @param lastSeed
+     */
+    public static void generate(BatchGenerator generator, List<BatchGenerator.Deck> decks, int firstSeed, int lastSeed) {
+        System.out.flush();
+        try {
+            generator.run(decks, firstSeed, lastSeed, Channels.newChannel(new FileOutputStream(FileDescriptor.out)));
+        }
+        catch (IOException e) {
+            System.err.println("Could not write layouts: " + e.getMessage());
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+
     public static void main(String[] args) {
 
         Scanner stdInScanner = new Scanner(System.in);
@@ -96,9 +220,34 @@ public class BHMain {
                 ranks = (args.length < 4 ? 13 : Integer.parseInt(args[3])) ;
                 suits = (args.length < 5 ? 4 : Integer.parseInt(args[4])) ;
                 piles = (args.length < 6 ? 17 : Integer.parseInt(args[5])) ;
-                layout = new BHLayout(ranks,suits,piles);
-                layout.randomise(seed,numcards);
-                layout.print();
+                try {
+                    BatchGenerator.Deck deck = new BatchGenerator.Deck(numcards, ranks, suits, piles);
+                    generate(new BatchGenerator(false, 1), Collections.singletonList(deck), seed, seed);
+                }
+                catch (IllegalArgumentException e) {
+                    System.err.println(e.getMessage());
+                }
+                stdInScanner.close();
+                return;
+
+            case "GENBATCH":
+                if (args.length < 3) { printUsage(); return; };
+                int firstSeed = Integer.parseInt(args[1]);
+                int lastSeed = Integer.parseInt(args[2]);
+                String format = (args.length < 8 ? "TEXT" : args[7].toUpperCase());
+                if (!format.equals("TEXT") && !format.equals("BINARY")) { printUsage(); return; };
+                int generators = (args.length < 9 ? 0 : Integer.parseInt(args[8]));
+
+                /// CODE FOR GENERATING MANY LAYOUTS IN ONE RUN
+                try {
+                    List<BatchGenerator.Deck> decks = BatchGenerator.decks(args.length < 4 ? "51" : args[3],
+                            args.length < 5 ? "13" : args[4], args.length < 6 ? "4" : args[5], args.length < 7 ? "17" : args[6]);
+                    generate(new BatchGenerator(format.equals("BINARY"), generators), decks, firstSeed, lastSeed);
+                }
+                catch (IllegalArgumentException e) {
+                    System.err.println(e.getMessage());
+                }
+
                 stdInScanner.close();
                 return;
 
@@ -109,10 +258,10 @@ public class BHMain {
                 )
                 { printUsage(); return; };
                 if (args[1].equals("-")) {
-                    layout = new BHLayout(readIntArray(stdInScanner));
+                    layout = readLayout(System.in);
                 }
                 else {
-                    layout = new BHLayout(readIntArray(args[1]));
+                    layout = readLayout(args[1]);
                 }
                 if (args.length < 3 || args[2].equals("-")) {
                     workingList = readIntArray(stdInScanner);
@@ -136,10 +285,10 @@ public class BHMain {
                 )
                 { printUsage(); return; };
                 if (args[1].equals("-")) {
-                    layout = new BHLayout(readIntArray(stdInScanner));
+                    layout = readLayout(System.in);
                 }
                 else {
-                    layout = new BHLayout(readIntArray(args[1]));
+                    layout = readLayout(args[1]);
                 }
                 if (args.length < 3 || args[2].equals("-")) {
                     workingList = readIntArray(stdInScanner);
@@ -160,36 +309,137 @@ public class BHMain {
 
             case "SOLVE":
                 if (args.length<2 || args[1].equals("-")) {
-                    layout = new BHLayout(readIntArray(stdInScanner));
+                    layout = readLayout(System.in);
                 }
                 else {
-                    layout = new BHLayout(readIntArray(args[1]));
+                    layout = readLayout(args[1]);
                 }
 
                 /// CODE FOR SOLVING BLACK HOLE
 
                 Solver solver = new Solver(layout, false, false);
-                solver.run();
+                if (args.length > 2) {
+                    try {
+                        solver.setOrdering(MoveOrdering.create(args[2]));
+                    }
+                    catch (IllegalArgumentException e) {
+                        System.err.println(e.getMessage() + ", expected one of " + String.join(", ", MoveOrdering.NAMES));
+                        stdInScanner.close();
+                        return;
+                    }
+                }
+                solver.setTablebase(Tablebase.fromProperty());
+                solveCached(solver, layout, false);
 
                 stdInScanner.close();
                 return;
 
             case "SOLVEWORM":
                 if (args.length<2 || args[1].equals("-")) {
-                    layout = new BHLayout(readIntArray(stdInScanner));
+                    layout = readLayout(System.in);
                 }
                 else {
-                    layout = new BHLayout(readIntArray(args[1]));
+                    layout = readLayout(args[1]);
                 }
 
                 /// CODE FOR SOLVING WORM HOLE
                 WHLayout wh = new WHLayout(layout);
                 solver = new Solver(wh, true, false);
+                if (args.length > 2) {
+                    try {
+                        solver.setOrdering(MoveOrdering.create(args[2]));
+                    }
+                    catch (IllegalArgumentException e) {
+                        System.err.println(e.getMessage() + ", expected one of " + String.join(", ", MoveOrdering.NAMES));
+                        stdInScanner.close();
+                        return;
+                    }
+                }
+                solveCached(solver, wh, true);
+
+                stdInScanner.close();
+                return;
+
+            case "SOLVEBATCH":
+            case "SOLVEBATCHWORM":
+                List<BatchSolver.Entry> deals;
+                if (args.length<2 || args[1].equals("-")) {
+                    deals = BatchSolver.read("-", System.in);
+                }
+                else {
+                    deals = BatchSolver.read(new File(args[1]));
+                }
+                int threads = (args.length < 3 ? 0 : Integer.parseInt(args[2]));
+
+                /// CODE FOR SOLVING MANY LAYOUTS IN ONE RUN
+                BatchSolver batch = new BatchSolver(args[0].equalsIgnoreCase("SOLVEBATCHWORM"), threads);
+                batch.run(deals, System.out);
+
+                stdInScanner.close();
+                return;
+
+            case "SOLVEBEAM":
+            case "SOLVEBEAMWORM":
+                if (args.length<2 || args[1].equals("-")) {
+                    layout = readLayout(System.in);
+                }
+                else {
+                    layout = readLayout(args[1]);
+                }
+                int width = (args.length < 3 ? BeamSolver.DEFAULT_WIDTH : Integer.parseInt(args[2]));
+                Heuristic heuristic = Heuristic.create(args.length < 4 ? "MOBILITY" : args[3]);
+
+                /// CODE FOR APPROXIMATE SOLVING OF LARGE LAYOUTS
+                boolean isWorm = args[0].equalsIgnoreCase("SOLVEBEAMWORM");
+                solver = new BeamSolver(isWorm ? new WHLayout(layout) : layout, isWorm, false, heuristic, width);
                 solver.run();
 
                 stdInScanner.close();
                 return;
 
+            case "TABLEBASE":
+                if (args.length < 2) { printUsage(); return; };
+                numcards = (args.length < 3 ? Tablebase.DEFAULT_CARDS : Integer.parseInt(args[2]));
+                ranks = (args.length < 4 ? 13 : Integer.parseInt(args[3]));
+                suits = (args.length < 5 ? 4 : Integer.parseInt(args[4]));
+
+                /// CODE FOR BUILDING THE ENDGAME DATABASE
+                try {
+                    System.out.println(Tablebase.generate(new File(args[1]), numcards, ranks, suits));
+                }
+                catch (IOException e) {
+                    System.err.println("Could not write tablebase: " + e.getMessage());
+                }
+
+                stdInScanner.close();
+                return;
+
+            case "TOBINARY":
+            case "TOTEXT":
+                if (args.length < 2 || (args[0].equalsIgnoreCase("TOBINARY") && args.length < 3)) { printUsage(); return; };
+                layout = args[1].equals("-") ? readLayout(System.in) : readLayout(args[1]);
+
+                /// CODE FOR CONVERTING BETWEEN LAYOUT FORMATS
+                try {
+                    if (args[0].equalsIgnoreCase("TOBINARY")) {
+                        BinaryLayout.write(layout, new File(args[2]));
+                    }
+                    else if (args.length < 3 || args[2].equals("-")) {
+                        layout.print();
+                    }
+                    else {
+                        try (PrintStream out = new PrintStream(new File(args[2]))) {
+                            layout.print(out);
+                        }
+                    }
+                }
+                catch (IOException e) {
+                    System.err.println("Could not write layout: " + e.getMessage());
+                }
+
+                stdInScanner.close();
+                return;
+
             default :
                 printUsage();
                 return;
@@ -0,0 +1,351 @@
+package functions;
+
+import layouts.BHLayout;
+import layouts.BinaryLayout;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Generates many layouts in one run, on a pool of threads.
+ *
+ * Every seed in a range is dealt for every deck given, and each layout is the one GEN deals for the same seed
+ * and deck. Layouts are written one after another, for each deck in turn every seed in order, in the text
+ * format GEN prints or in the binary format of BinaryLayout. Threads deal runs of consecutive seeds straight
+ * into byte buffers, reusing their arrays and random number generator, and the buffers are written to the
+ * channel in order whatever order the threads finish in, so the output only depends on the seeds and decks.
+ */
+public class BatchGenerator {
+
+    // Hole card of every generated layout, the Ace of Spades
+    private static final int HOLE = 1;
+
+    // Bytes each thread aims to deal into a buffer before it is written
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    // Most bytes an int takes as text, with its sign
+    private static final int INT_DIGITS = 11;
+
+    private static final byte SPACE = ' ';
+
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes();
+
+    private static final byte[] END_PILE = ("-1" + System.lineSeparator()).getBytes();
+
+    private final boolean binary;
+
+    private final int threads;
+
+    // Arrays and random number generator each thread deals with
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Parameters of a deck to deal, as given to GEN
+     */
+    public static class Deck {
+
+        private final int numCards;
+
+        private final int ranks;
+
+        private final int suits;
+
+        private final int piles;
+
+        public int numCards() {
+            return numCards;
+        }
+
+        public int ranks() {
+            return ranks;
+        }
+
+        public int suits() {
+            return suits;
+        }
+
+        public int piles() {
+            return piles;
+        }
+
+        /**
+         * @param numCards cards dealt to the piles, at most one less than the deck
+         * @param ranks
+         * @param suits
+         * @param piles number of piles, or less than zero for 17 as in BHLayout
+         * @throws IllegalArgumentException if the deck has no cards
+         */
+        public Deck(int numCards, int ranks, int suits, int piles) {
+            if (ranks < BHLayout.ONE || suits < BHLayout.ONE || (long) ranks * suits > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Cannot deal a deck of " + ranks + " ranks and " + suits + " suits");
+            }
+            this.numCards = numCards;
+            this.ranks = ranks;
+            this.suits = suits;
+            this.piles = piles < BHLayout.ZERO ? BHLayout.DEFAULT_PILES : piles;
+        }
+    }
+
+    /**
+     * Arrays reused by one thread from layout to layout
+     */
+    private static class Scratch {
+
+        private final Random random = new Random();
+
+        private int[] cards = new int[0];
+
+        private int[] dealt = new int[0];
+
+        private int[] offsets = new int[1];
+    }
+
+    /**
+     * A run of consecutive seeds of one deck
+     */
+    private static class Chunk {
+
+        private final Deck deck;
+
+        private final int firstSeed;
+
+        private final int count;
+
+        private Chunk(Deck deck, int firstSeed, int count) {
+            this.deck = deck;
+            this.firstSeed = firstSeed;
+            this.count = count;
+        }
+    }
+
+
+    /**
+     * Builds every deck made of one value from each comma separated list, in the order the lists are given
+     * @param numCards
+     * @param ranks
+     * @param suits
+     * @param piles
+     * @return list of decks, the last list changing fastest
+     * @throws NumberFormatException if a list holds anything that is not a number
+     */
+    public static ArrayList<Deck> decks(String numCards, String ranks, String suits, String piles) {
+        ArrayList<Deck> decks = new ArrayList<>();
+        for (String c : numCards.split(",")) {
+            for (String r : ranks.split(",")) {
+                for (String s : suits.split(",")) {
+                    for (String p : piles.split(",")) {
+                        decks.add(new Deck(Integer.parseInt(c.trim()), Integer.parseInt(r.trim()),
+                                Integer.parseInt(s.trim()), Integer.parseInt(p.trim())));
+                    }
+                }
+            }
+        }
+        return decks;
+    }
+
+    /**
+     * Number of cards dealt from a deck, as in BHLayout.randomise
+     * @param deck
+     * @return cards on the piles
+     */
+    private static int dealtCards(Deck deck) {
+        return BHLayout.dealtCards(deck.numCards(), deck.ranks() * deck.suits());
+    }
+
+    /**
+     * Most bytes one layout of a deck can take
+     * @param deck
+     * @return size in bytes
+     */
+    private long maxBytes(Deck deck) {
+        int cards = dealtCards(deck);
+        if (binary) {
+            return BinaryLayout.size(deck.piles(), cards);
+        }
+        return 4L * INT_DIGITS + 2L * NEWLINE.length + (long) cards * (INT_DIGITS + 1)
+                + (long) deck.piles() * END_PILE.length;
+    }
+
+    /**
+     * Deals a deck with BHLayout.deal, leaving the cards of each pile bottom first in scratch.dealt and the start
+     * of each pile in scratch.offsets
+     * @param deck
+     * @param seed
+     * @param scratch
+     */
+    private static void deal(Deck deck, int seed, Scratch scratch) {
+        int deckSize = deck.ranks() * deck.suits();
+        if (scratch.cards.length < deckSize - 1) {
+            scratch.cards = new int[deckSize - 1];
+        }
+        if (scratch.dealt.length < dealtCards(deck)) {
+            scratch.dealt = new int[dealtCards(deck)];
+        }
+        if (scratch.offsets.length < deck.piles() + 1) {
+            scratch.offsets = new int[deck.piles() + 1];
+        }
+        // Reseeding gives the same sequence as a new Random
+        scratch.random.setSeed(seed);
+        BHLayout.deal(scratch.random, deckSize, deck.numCards(), deck.piles(), scratch.cards, scratch.dealt, scratch.offsets);
+    }
+
+    /**
+     * Writes a number as text at the position of a buffer
+     * @param buffer
+     * @param value
+     */
+    private static void putNumber(ByteBuffer buffer, int value) {
+        long magnitude = value;
+        if (magnitude < 0) {
+            buffer.put((byte) '-');
+            magnitude = -magnitude;
+        }
+        long divisor = 1;
+        while (divisor * 10 <= magnitude) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            buffer.put((byte) ('0' + magnitude / divisor % 10));
+            divisor /= 10;
+        }
+    }
+
+    /**
+     * Writes the layout dealt into scratch in the text format of BHLayout.print
+     * @param deck
+     * @param scratch
+     * @param buffer
+     */
+    private static void putText(Deck deck, Scratch scratch, ByteBuffer buffer) {
+        putNumber(buffer, deck.ranks());
+        buffer.put(SPACE);
+        putNumber(buffer, deck.suits());
+        buffer.put(SPACE);
+        putNumber(buffer, deck.piles());
+        buffer.put(NEWLINE);
+        putNumber(buffer, HOLE);
+        buffer.put(NEWLINE);
+        int[] offsets = scratch.offsets;
+        for (int pile = 0; pile < deck.piles(); pile++) {
+            for (int i = offsets[pile]; i < offsets[pile + 1]; i++) {
+                putNumber(buffer, scratch.dealt[i]);
+                buffer.put(SPACE);
+            }
+            buffer.put(END_PILE);
+        }
+    }
+
+    /**
+     * Deals a run of seeds into a buffer, replacing the buffer if it is too small
+     * @param chunk
+     * @param buffer buffer to reuse
+     * @return buffer holding the layouts, ready to be written
+     */
+    private ByteBuffer generate(Chunk chunk, ByteBuffer buffer) {
+        Deck deck = chunk.deck;
+        long needed = maxBytes(deck) * chunk.count;
+        if (buffer.capacity() < needed) {
+            buffer = ByteBuffer.allocate((int) needed);
+        }
+        buffer.clear();
+        Scratch scratch = this.scratch.get();
+        for (int i = 0; i < chunk.count; i++) {
+            deal(deck, chunk.firstSeed + i, scratch);
+            if (binary) {
+                BinaryLayout.put(buffer, deck.ranks(), deck.suits(), HOLE, scratch.dealt, scratch.offsets, deck.piles());
+            }
+            else {
+                putText(deck, scratch, buffer);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Splits the seeds of every deck into runs which fill about one buffer each
+     * @param decks
+     * @param firstSeed
+     * @param lastSeed
+     * @return list of runs in output order
+     * @throws IllegalArgumentException if a single layout of a deck is too large for a buffer
+     */
+    private ArrayList<Chunk> chunks(List<Deck> decks, int firstSeed, int lastSeed) {
+        ArrayList<Chunk> chunks = new ArrayList<>();
+        for (Deck deck : decks) {
+            long bytes = maxBytes(deck);
+            if (bytes > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Layouts of " + deck.numCards() + " cards are too large to generate");
+            }
+            long perChunk = Math.max(CHUNK_BYTES / bytes, BHLayout.ONE);
+            for (long seed = firstSeed; seed <= lastSeed; seed += perChunk) {
+                chunks.add(new Chunk(deck, (int) seed, (int) Math.min(perChunk, lastSeed - seed + 1)));
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Generates every seed from firstSeed to lastSeed for every deck, writing the layouts in order
+     * @param decks
+     * @param firstSeed
+     * @param lastSeed
+     * @param out channel the layouts are written to, which is left open
+     * @throws IOException if the channel cannot be written
+     * @throws IllegalArgumentException if a single layout of a deck is too large for a buffer
+     */
+    public void run(List<Deck> decks, int firstSeed, int lastSeed, WritableByteChannel out) throws IOException {
+        ArrayList<Chunk> chunks = chunks(decks, firstSeed, lastSeed);
+        // Keep a few runs per thread in flight, so memory is bounded however many seeds there are
+        int window = threads * 2;
+        ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+        ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            int next = 0;
+            while (next < chunks.size() || !pending.isEmpty()) {
+                while (next < chunks.size() && pending.size() < window) {
+                    Chunk chunk = chunks.get(next++);
+                    ByteBuffer buffer = free.isEmpty() ? ByteBuffer.allocate(CHUNK_BYTES) : free.pop();
+                    pending.add(pool.submit(() -> generate(chunk, buffer)));
+                }
+                ByteBuffer buffer = pending.remove().get();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                free.push(buffer);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            System.err.println(e.getCause().getMessage());
+            System.err.println("Exiting ... ");
+            System.exit(BHLayout.ERR);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+
+    /**
+     * @param binary write layouts in the binary format instead of as text
+     * @param threads number of threads, or less than one for one per processor
+     */
+    public BatchGenerator(boolean binary, int threads) {
+        this.binary = binary;
+        this.threads = threads < BHLayout.ONE ? Runtime.getRuntime().availableProcessors() : threads;
+    }
+}
@@ -0,0 +1,289 @@
+package functions;
+
+import layouts.BHLayout;
+import layouts.BinaryLayout;
+import layouts.LayoutParser;
+import layouts.WHLayout;
+import types.Node;
+import types.Tuple;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Solves many layouts in one run, on a pool of threads.
+ *
+ * Layouts are read from a stream, a file or every file under a directory. A stream or file may hold several
+ * layouts one after another, as produced by running GEN more than once or by GENBATCH, and a file may hold
+ * binary layouts instead, as written by GENBATCH BINARY. Text is parsed and binary layouts are mapped straight
+ * into packed layouts, without boxing a value. Each layout is solved by its own Solver and gets one line of
+ * output, printed in input order whatever order the threads finish in:
+ *
+ *     name status nodes time [pile card ...]
+ *
+ * A file or stream that holds anything other than numbers is skipped with a message on stderr. A layout whose solver
+ * fails gets the line "name ERROR message" and the rest of the batch carries on.
+ *
+ * Each layout is first run through the precheck. One it rejects is reported as unsolvable with no nodes
+ * visited, followed by the rule that fired instead of a solution.
+ */
+public class BatchSolver {
+
+    private static final char SPACE = ' ';
+
+    // Number of values before the piles of a layout: ranks, suits, piles and the hole card
+    private static final int HEADER = 4;
+
+    // Position of the pile count in a layout's header
+    private static final int PILES_INDEX = 2;
+
+    private final boolean isWorm;
+
+    private final int threads;
+
+    /**
+     * A layout to solve along with the name it is reported under
+     */
+    public static class Entry {
+
+        private final String name;
+
+        private final BHLayout layout;
+
+        public String name() {
+            return name;
+        }
+
+        public BHLayout layout() {
+            return layout;
+        }
+
+        public Entry(String name, BHLayout layout) {
+            this.name = name;
+            this.layout = layout;
+        }
+    }
+
+
+    /**
+     * Names the layouts read from one source, numbering them when there is more than one
+     * @param name name of the source
+     * @param layouts layouts in the order they appear
+     * @return list of layouts to solve
+     */
+    private static ArrayList<Entry> entries(String name, List<BHLayout> layouts) {
+        ArrayList<Entry> deals = new ArrayList<>(layouts.size());
+        for (int i = 0; i < layouts.size(); i++) {
+            deals.add(new Entry(layouts.size() > BHLayout.ONE ? name + "#" + (i + 1) : name, layouts.get(i)));
+        }
+        return deals;
+    }
+
+    /**
+     * Reads every layout left in a parser, an input with no values being read as one empty layout as SOLVE does
+     * @param name name the layouts are reported under
+     * @param parser
+     * @return list of layouts
+     * @throws LayoutParser.MalformedLayoutException if the input holds anything that is not a number
+     */
+    private static ArrayList<Entry> read(String name, LayoutParser parser) throws IOException {
+        ArrayList<BHLayout> layouts = new ArrayList<>();
+        do {
+            layouts.add(parser.readLayout());
+        } while (parser.hasNext());
+        return entries(name, layouts);
+    }
+
+
+    /**
+     * Splits a sequence of integers into the layouts it holds.
+     * Each layout is a header of ranks, suits, piles and hole card followed by its piles, each ended by -1.
+     * Files and streams are parsed straight into layouts instead, see read.
+     * @param name name of the source, numbered when it holds more than one layout
+     * @param integers
+     * @return list of layouts in the order they appear
+     */
+    public static ArrayList<Entry> split(String name, List<Integer> integers) {
+        ArrayList<BHLayout> layouts = new ArrayList<>();
+        int start = 0;
+        while (start < integers.size()) {
+            int end = Math.min(start + HEADER, integers.size());
+            int piles = end - start > PILES_INDEX ? integers.get(start + PILES_INDEX) : BHLayout.ZERO;
+            piles = piles < BHLayout.ZERO ? BHLayout.DEFAULT_PILES : piles;
+            // Read up to the end of the last pile
+            int closed = 0;
+            while (end < integers.size() && closed < piles) {
+                if (integers.get(end++) == BHLayout.ERR) {
+                    closed++;
+                }
+            }
+            layouts.add(new BHLayout(new ArrayList<>(integers.subList(start, end))));
+            start = end;
+        }
+        // A source with no values is read as an empty layout, as SOLVE does
+        if (layouts.isEmpty()) {
+            layouts.add(new BHLayout(new ArrayList<>()));
+        }
+        return entries(name, layouts);
+    }
+
+    /**
+     * Reads every layout from a stream.
+     * A stream which is not layouts is reported and skipped, as a file is.
+     * @param name name the layouts are reported under
+     * @param in
+     * @return list of layouts
+     */
+    public static ArrayList<Entry> read(String name, InputStream in) {
+        try {
+            return read(name, new LayoutParser(in));
+        }
+        catch (IOException e) {
+            System.err.println("Skipping " + name + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Reads every layout from a file, or from every file under a directory in path order.
+     * Files which are not layouts are reported and skipped.
+     * @param file
+     * @return list of layouts
+     */
+    public static ArrayList<Entry> read(File file) {
+        ArrayList<Entry> deals = new ArrayList<>();
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            if (files != null) {
+                Arrays.sort(files);
+                for (File f : files) {
+                    deals.addAll(read(f));
+                }
+            }
+        }
+        else if (BinaryLayout.isBinary(file)) {
+            try {
+                deals.addAll(entries(file.getPath(), BinaryLayout.readAll(file)));
+            }
+            catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+        else {
+            try (FileChannel channel = new FileInputStream(file).getChannel()) {
+                deals.addAll(read(file.getPath(), new LayoutParser(channel)));
+            }
+            catch (FileNotFoundException e) {
+                System.err.println("File not found: " + file.getPath());
+            }
+            catch (IOException e) {
+                System.err.println("Skipping " + file.getPath() + ": " + e.getMessage());
+            }
+        }
+        return deals;
+    }
+
+    /**
+     * Solves one layout
+     * @param deal
+     * @return line of output for this layout
+     * @throws RuntimeException if the solver fails on the layout
+     */
+    public String solve(Entry deal) {
+        // Solve a copy, so the entry can be solved again
+        BHLayout layout = deal.layout();
+        Solver solver = new Solver(isWorm ? new WHLayout(layout) : new BHLayout(layout), isWorm, true);
+        solver.setPrecheck(true);
+        solver.runOrThrow();
+        return format(deal.name(), solver);
+    }
+
+    /**
+     * Builds the line of output for a solved layout
+     * @param name
+     * @param solver a solver which has been run
+     * @return new string
+     */
+    public static String format(String name, Solver solver) {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append(name);
+        stringBuilder.append(SPACE);
+        stringBuilder.append(solver.getStatus());
+        stringBuilder.append(SPACE);
+        stringBuilder.append(solver.getNodesVisited());
+        stringBuilder.append(SPACE);
+        stringBuilder.append(new BigDecimal(solver.getElapsedTime()).setScale(2, RoundingMode.CEILING));
+        stringBuilder.append("ms");
+        Node solution = solver.getSolution();
+        if (solution != null) {
+            ArrayList<Tuple> log = solution.log();
+            for (int i = 0; i < log.size(); i++) {
+                stringBuilder.append(SPACE);
+                stringBuilder.append(log.get(i).getPile());
+                stringBuilder.append(SPACE);
+                stringBuilder.append(log.get(i).getCard());
+            }
+        }
+        else if (solver.getPrecheckRule() != Precheck.Rule.NONE) {
+            stringBuilder.append(SPACE);
+            stringBuilder.append(solver.getPrecheckRule());
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Solves every layout on the thread pool, printing a line for each in input order as soon as it
+     * and every layout before it are solved. A layout whose solver fails gets an error line instead.
+     * @param deals
+     * @param out
+     */
+    public void run(List<Entry> deals, PrintStream out) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<String>> results = new ArrayList<>(deals.size());
+            for (Entry deal : deals) {
+                results.add(pool.submit(() -> solve(deal)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    out.println(results.get(i).get());
+                }
+                catch (ExecutionException e) {
+                    out.println(deals.get(i).name() + SPACE + "ERROR" + SPACE + e.getCause());
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            pool.shutdownNow();
+            out.flush();
+        }
+    }
+
+
+    /**
+     * @param isWorm solve the worm hole variation
+     * @param threads number of threads, or less than one for one per processor
+     */
+    public BatchSolver(boolean isWorm, int threads) {
+        this.isWorm = isWorm;
+        this.threads = threads < BHLayout.ONE ? Runtime.getRuntime().availableProcessors() : threads;
+    }
+}
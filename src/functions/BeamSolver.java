@@ -0,0 +1,82 @@
+package functions;
+
+import layouts.BHLayout;
+import types.BeamFrontier;
+import types.Heuristic;
+import types.MobilityHeuristic;
+
+
+/**
+ * Beam search solver for decks too large to search exhaustively.
+ *
+ * This is Solver with its stack replaced by a beam frontier, so the search goes one move at a time across the
+ * whole beam and only the best width states of each level, as scored by the heuristic, are kept. It never holds
+ * more than a few levels of the beam, and finds a solution as soon as one branch of the beam gets through. If the
+ * beam empties after states were dropped the result is UNKNOWN, as a dropped state may have led to a solution.
+ * A beam that never had to drop anything searched every state, so its result is still UNSOLVABLE.
+ * See Solver.java for further method implementations
+ */
+public class BeamSolver extends Solver {
+
+    /**
+     * Default number of states kept from each level
+     */
+    public static final int DEFAULT_WIDTH = 256;
+
+    private final Heuristic heuristic;
+
+    private final int width;
+
+
+    // Getters
+    public Heuristic getHeuristic() {
+        return this.heuristic;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * @return number of states dropped from the beam
+     */
+    public long getDropped() {
+        return ((BeamFrontier) frontier).dropped();
+    }
+
+    /**
+     * @return number of levels the beam reached
+     */
+    public int getLevels() {
+        return ((BeamFrontier) frontier).levels();
+    }
+
+    @Override
+    protected boolean incomplete() {
+        return getDropped() > BHLayout.ZERO;
+    }
+
+
+    /**
+     * @param layout puzzle layout
+     * @param isWorm are we solving a worm hole variation ?
+     * @param suppress suppress stdout output
+     * @param time print the time taken
+     * @param nodes print the number of nodes visited
+     * @param heuristic score used to choose the states kept in the beam
+     * @param width largest number of states kept from each level
+     */
+    public BeamSolver(BHLayout layout, boolean isWorm, boolean suppress, boolean time, boolean nodes, Heuristic heuristic, int width) {
+        super(layout, isWorm, false, suppress, time, nodes, new BeamFrontier(node -> Heuristic.priority(heuristic, node), width));
+        this.heuristic = heuristic;
+        this.width = width;
+    }
+
+    public BeamSolver(BHLayout layout, boolean isWorm, boolean suppress, Heuristic heuristic, int width) {
+        this(layout, isWorm, suppress, false, false, heuristic, width);
+    }
+
+    public BeamSolver(BHLayout layout, boolean isWorm, boolean suppress) {
+        this(layout, isWorm, suppress, false, false, new MobilityHeuristic(), DEFAULT_WIDTH);
+    }
+}
@@ -0,0 +1,68 @@
+package functions;
+
+import layouts.BHLayout;
+import types.Heuristic;
+import types.PriorityFrontier;
+import types.StuckHeuristic;
+
+
+/**
+ * Best-first solver which always expands the state the heuristic rates closest to a solution.
+ *
+ * This is Solver with its stack replaced by a priority frontier, so states are still filtered and expanded in the
+ * same way. A solution is popped as soon as it is pushed. The frontier can be given a maximum size, past
+ * which the worst states are dropped. A search that drops states and finds no solution ends as UNKNOWN rather
+ * than UNSOLVABLE, as a dropped state may have led to one.
+ * See Solver.java for further method implementations
+ */
+public class BestFirstSolver extends Solver {
+
+    /**
+     * Default maximum number of nodes in the frontier
+     */
+    public static final int DEFAULT_MAX_FRONTIER = 1 << 20;
+
+    private final Heuristic heuristic;
+
+
+    // Getters
+    public Heuristic getHeuristic() {
+        return this.heuristic;
+    }
+
+    /**
+     * @return number of states dropped from the frontier
+     */
+    public long getDropped() {
+        return ((PriorityFrontier) frontier).dropped();
+    }
+
+    @Override
+    protected boolean incomplete() {
+        return getDropped() > BHLayout.ZERO;
+    }
+
+
+    /**
+     * @param layout puzzle layout
+     * @param isWorm are we solving a worm hole variation ?
+     * @param complete search for every solution
+     * @param suppress suppress stdout output
+     * @param time print the time taken
+     * @param nodes print the number of nodes visited
+     * @param heuristic estimate used to choose the next state
+     * @param maxFrontier largest number of states held in the frontier
+     */
+    public BestFirstSolver(BHLayout layout, boolean isWorm, boolean complete, boolean suppress, boolean time, boolean nodes, Heuristic heuristic, int maxFrontier) {
+        super(layout, isWorm, complete, suppress, time, nodes, new PriorityFrontier(node -> Heuristic.priority(heuristic, node), maxFrontier));
+        this.heuristic = heuristic;
+    }
+
+    public BestFirstSolver(BHLayout layout, boolean isWorm, boolean complete, boolean suppress, Heuristic heuristic, int maxFrontier) {
+        this(layout, isWorm, complete, suppress, false, false, heuristic, maxFrontier);
+    }
+
+    public BestFirstSolver(BHLayout layout, boolean isWorm, boolean suppress) {
+        this(layout, isWorm, false, suppress, false, false, new StuckHeuristic(), DEFAULT_MAX_FRONTIER);
+    }
+}
@@ -1,9 +1,11 @@
 package functions;
 
 import layouts.*;
+import types.MoveLog;
 import types.Tuple;
 
 import java.util.ArrayList;
+import java.util.Collections;
 
 
 /**
@@ -73,6 +75,24 @@ public class Checker {
         return solutionList;
     }
 
+    /**
+     * Takes a persistent move log and creates the list of integers used during checking a solution,
+     * without building any tuples.
+     * @param log
+     * @return
+     */
+    public static ArrayList<Integer> unwrapLog(MoveLog log) {
+        int size = log.length() * BHLayout.PAIR;
+        ArrayList<Integer> solutionList = new ArrayList<>(Collections.nCopies(size, BHLayout.ZERO));
+        // Walk back from the most recent move
+        for (int i = size - BHLayout.PAIR; i >= 0; i -= BHLayout.PAIR) {
+            solutionList.set(i, log.lastPile());
+            solutionList.set(i + 1, log.lastCard());
+            log = log.previous();
+        }
+        return solutionList;
+    }
+
     /**
      * Checks to see if a given card has a rank that is adjacent to the hole card rank
      * @param layout
@@ -80,23 +100,8 @@ public class Checker {
      * @return true or false
      */
     public static boolean checkCardRank(BHLayout layout, int card) {
-        // Retrieve the ranks
-        int cardRank = layout.getCardRank(card);
-        int holeRank = layout.getCardRank(layout.holeCard());
-
-        // Get the minimum and max ranks for this deck of cards
-        // Only the maximum changes
-        int min = BHLayout.ONE;
-        int max = layout.numRanks();
-
-        // Check to see if the cards are circular before comparing their adjacency
-        if (!(holeRank == min && cardRank == max) && !(cardRank == min && holeRank == max)) {
-            // They are not adjacent if true
-            if (Math.abs(cardRank - holeRank) != BHLayout.ONE) {
-                return false;
-            }
-        }
-        return true;
+        // The layout's rank table already knows which ranks are adjacent, including circular ones
+        return layout.isAdjacent(card, layout.holeCard());
     }
 
     /**
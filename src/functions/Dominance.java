@@ -0,0 +1,66 @@
+package functions;
+
+import layouts.BHLayout;
+
+
+/**
+ * Rules which skip worm hole moves that can never be needed, because some other order of moves always does as well.
+ *
+ * Parking a card does not change the hole card, and playing from another pile does not touch the parked card, so a
+ * park can always be put off until just before the next move that needs it. That move must play from the pile the
+ * card was parked from, as otherwise the card could have stayed where it was: a card parked and then played from
+ * the worm hole with nothing played from its pile in between could have been played straight from its pile instead.
+ * So every solution can be reordered so that each park is followed at once by playing the card it uncovered, and
+ * the rules only keep the moves of such solutions:
+ *   - UNPARK: a card is never moved from the worm hole straight after being parked
+ *   - PARK: a card is only parked if the card under it can go straight onto the hole card, so never the last card
+ *     of a pile
+ *   - FOLLOW: straight after a park the only move is playing the card it uncovered
+ * Whether a card was just parked can be seen from the state alone, as it is still the card above the top of its
+ * pile, so the rules are safe to use with the visited state filter. The starting layout is left alone, as its worm
+ * hole card was not parked by the search.
+ *
+ * Never parking a card that could go straight onto the hole card is not one of the rules, as it loses solutions.
+ * With the hole card a 5, one pile holding a 4 under a 6 and another a 7 under a second 5, the only solution parks
+ * the 6, plays the 4 and the second 5, and then the 6 and the 7.
+ */
+public class Dominance {
+
+    /**
+     * Rule that skips a kind of dominated move
+     */
+    public enum Rule {
+        UNPARK,
+        PARK,
+        FOLLOW
+    }
+
+    /**
+     * Checks whether parking the top card of a pile would let the card under it go onto the hole card
+     * @param layout
+     * @param pile
+     * @return true if the park can be part of a reordered solution
+     */
+    public static boolean uncovers(BHLayout layout, int pile) {
+        int size = layout.pileSize(pile);
+        return size >= BHLayout.PAIR && layout.isAdjacent(layout.cardAt(pile, size - BHLayout.PAIR), layout.holeCard());
+    }
+
+    /**
+     * Finds the pile the worm hole card was parked from, if nothing has been played from it since
+     * @param layout a worm hole layout
+     * @return pile, or -1 if the worm hole is empty or its card was not just parked
+     */
+    public static int parkedFrom(BHLayout layout) {
+        int worm = layout.topCard(BHLayout.ERR);
+        if (worm == BHLayout.ERR) {
+            return BHLayout.ERR;
+        }
+        for (int p = 0; p < layout.numPiles(); p++) {
+            if (layout.lastRemoved(p) == worm) {
+                return p;
+            }
+        }
+        return BHLayout.ERR;
+    }
+}
@@ -0,0 +1,198 @@
+package functions;
+
+import layouts.BHLayout;
+import types.ConcurrentStateSet;
+
+import java.util.ArrayList;
+
+
+/**
+ * Set of the black hole states of one deal, with a few cards left, from which the game can still be finished.
+ *
+ * A game always ends with every pile empty and the last card played, the bottom card of some pile, in the hole.
+ * The set is built backwards from those end states, one card at a time. Undoing a move puts the hole card back
+ * on the pile it was the card above the top of, and makes the hole card the card that was played before it,
+ * which must be the card above the top of another pile, of an adjacent rank. Undoing the first move puts the
+ * starting hole card back instead. Levels are built until the time budget or state limit runs out, and once
+ * a level is finished every state with that many cards left that can reach an end state is in the set, so
+ * the forward search can skip any other state with that many cards left or fewer.
+ *
+ * States are stored by their Zobrist keys, so a state shares its key with the forward search.
+ */
+public class GoalSet {
+
+    /**
+     * Default time budget for building the set, in milliseconds
+     */
+    public static final double DEFAULT_BUDGET = 1000;
+
+    /**
+     * Default largest number of states stored
+     */
+    public static final int DEFAULT_STATES = 1 << 20;
+
+    // Conversion value for converting nanoseconds to milliseconds
+    private static final double CONVERSION = 1000000;
+
+    private final ConcurrentStateSet keys;
+
+    // Number of cards left up to which the set holds every state that can be finished
+    private int depth = BHLayout.ERR;
+
+    // Set if the starting layout was reached, which shows the game can be won
+    private boolean start = false;
+
+    // Number of states the forward search skipped
+    private long eliminated = 0;
+
+    private final double buildTime;
+
+
+    // Getters
+    /**
+     * @return number of cards left up to which states not in the set cannot be finished, -1 if none
+     */
+    public int depth() {
+        return depth;
+    }
+
+    public long size() {
+        return keys.size();
+    }
+
+    /**
+     * @return true if the backward search reached the starting layout
+     */
+    public boolean reachesStart() {
+        return start;
+    }
+
+    /**
+     * @return number of states reaches returned false for
+     */
+    public long eliminated() {
+        return eliminated;
+    }
+
+    /**
+     * @return milliseconds taken to build the set
+     */
+    public double buildTime() {
+        return buildTime;
+    }
+
+    /**
+     * Checks whether a state of the deal may still be finished
+     * @param state
+     * @return false if the state has few enough cards left to be covered and is not in the set
+     */
+    public boolean reaches(BHLayout state) {
+        if (state.cardsLeft() > depth || keys.contains(state.stateKey())) {
+            return true;
+        }
+        eliminated++;
+        return false;
+    }
+
+    /**
+     * Adds a state to the set
+     * @param state
+     * @param level list the state is added to if it is new
+     */
+    private void add(BHLayout state, ArrayList<BHLayout> level) {
+        if (keys.add(state.stateKey())) {
+            level.add(state);
+        }
+    }
+
+    /**
+     * Builds the set, stopping after the last level finished within the budget
+     * @param root starting layout of the deal
+     * @param budget milliseconds to spend
+     * @param states largest number of states stored
+     */
+    private void build(BHLayout root, double budget, int states) {
+        double startTime = System.nanoTime();
+        int total = root.cardsLeft();
+        BHLayout end = new BHLayout(root);
+        for (int p = 0; p < end.numPiles(); p++) {
+            while (end.removeTopCard(p) != BHLayout.ERR) {
+                // Empty the pile
+            }
+        }
+        ArrayList<BHLayout> level = new ArrayList<>();
+        if (total == BHLayout.ZERO) {
+            add(end, level);
+            start = true;
+        }
+        for (int p = 0; p < end.numPiles(); p++) {
+            int last = end.lastRemoved(p);
+            if (last != BHLayout.ERR) {
+                BHLayout goal = new BHLayout(end);
+                goal.restoreHole(last);
+                add(goal, level);
+            }
+        }
+        depth = BHLayout.ZERO;
+
+        for (int n = 1; n <= total && !level.isEmpty(); n++) {
+            ArrayList<BHLayout> next = new ArrayList<>();
+            for (BHLayout state : level) {
+                if ((System.nanoTime() - startTime) / CONVERSION > budget || keys.size() > states || keys.isFull()) {
+                    return;
+                }
+                int hole = state.holeCard();
+                for (int p = 0; p < state.numPiles(); p++) {
+                    if (state.lastRemoved(p) != hole) {
+                        continue;
+                    }
+                    BHLayout restored = new BHLayout(state);
+                    restored.restoreTopCard(p);
+                    if (n == total) {
+                        // Every card is back, so the hole card was played onto the starting hole card
+                        if (root.isAdjacent(hole, root.holeCard())) {
+                            restored.restoreHole(root.holeCard());
+                            add(restored, next);
+                            start = true;
+                        }
+                        continue;
+                    }
+                    for (int q = 0; q < restored.numPiles(); q++) {
+                        int previous = restored.lastRemoved(q);
+                        if (previous != BHLayout.ERR && restored.isAdjacent(hole, previous)) {
+                            BHLayout prior = new BHLayout(restored);
+                            prior.restoreHole(previous);
+                            add(prior, next);
+                        }
+                    }
+                }
+            }
+            // A level with states that did not fit may be missing some of them
+            if (keys.isFull()) {
+                return;
+            }
+            depth = n;
+            level = next;
+        }
+        // No state with more cards left can be finished
+        depth = total;
+    }
+
+
+    /**
+     * Builds the goal set of a deal
+     * @param root starting layout of the deal
+     * @param budget milliseconds to spend
+     * @param states largest number of states stored
+     */
+    public GoalSet(BHLayout root, double budget, int states) {
+        this.keys = new ConcurrentStateSet((long) Integer.highestOneBit(Math.max(states, BHLayout.ONE)) * 2 * Long.BYTES);
+        double startTime = System.nanoTime();
+        build(root, budget, states);
+        this.buildTime = (System.nanoTime() - startTime) / CONVERSION;
+    }
+
+    public GoalSet(BHLayout root, double budget) {
+        this(root, budget, DEFAULT_STATES);
+    }
+}
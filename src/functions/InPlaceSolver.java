@@ -0,0 +1,338 @@
+package functions;
+
+import layouts.BHLayout;
+import layouts.WHLayout;
+import types.MoveLog;
+import types.Node;
+
+import java.util.Arrays;
+
+
+/**
+ * Depth-first solver which keeps a single layout and applies and undoes moves on it in place.
+ *
+ * Instead of creating a new layout for every child, each move is made on the one layout and reverted when
+ * its subtree is finished. The moves still to try at each level of the current path are kept on an explicit
+ * move stack, so memory grows with the depth of the search rather than the size of the frontier, and deep
+ * decks cannot overflow the thread stack like RecursiveSolver can.
+ *
+ * Moves are tried in the same order that Solver pops them, so solutions and node counts match Solver.
+ * See Solver.java for further method implementations
+ */
+public class InPlaceSolver extends Solver {
+
+    private static final int INITIAL_DEPTH = 64;
+
+    /**
+     * The one layout that every move is applied to and undone on
+     */
+    protected BHLayout state;
+
+    /**
+     * Depth of the current path, the root is at depth 0
+     */
+    protected int depth;
+
+    // Moves generated at every level of the current path, stored back to back
+    private int[] movePiles = new int[INITIAL_DEPTH];
+    private int[] moveCards = new int[INITIAL_DEPTH];
+    private boolean[] moveParks = new boolean[INITIAL_DEPTH];
+    private int moveCount;
+
+    // For each level: index of its first generated move, and one past the next move to try
+    private int[] first = new int[INITIAL_DEPTH];
+    private int[] next = new int[INITIAL_DEPTH];
+
+    // For each level below the root: the move made to reach it and the hole card it replaced
+    protected int[] pathPiles = new int[INITIAL_DEPTH];
+    protected int[] pathCards = new int[INITIAL_DEPTH];
+    protected boolean[] pathParks = new boolean[INITIAL_DEPTH];
+    private int[] pathHoles = new int[INITIAL_DEPTH];
+
+    /**
+     * Set when the search has to stop early, for a solution or a time out
+     */
+    protected boolean stopped;
+
+    /**
+     * Stores the start time of the search in nano seconds
+     */
+    protected double startTime;
+
+
+    /**
+     * Applies a move to the layout and records it on the path
+     * @param pile pile the card comes from, -1 for the worm hole
+     * @param card card moved
+     * @param park is the card moved into the worm hole
+     */
+    protected void makeMove(int pile, int card, boolean park) {
+        depth++;
+        if (depth == pathPiles.length) {
+            pathPiles = Arrays.copyOf(pathPiles, depth * 2);
+            pathCards = Arrays.copyOf(pathCards, depth * 2);
+            pathParks = Arrays.copyOf(pathParks, depth * 2);
+            pathHoles = Arrays.copyOf(pathHoles, depth * 2);
+            first = Arrays.copyOf(first, depth * 2);
+            next = Arrays.copyOf(next, depth * 2);
+        }
+        pathPiles[depth] = pile;
+        pathCards[depth] = card;
+        pathParks[depth] = park;
+        pathHoles[depth] = state.holeCard();
+        if (park) {
+            ((WHLayout) state).setWormHole(card);
+        }
+        else {
+            state.setHole(card);
+        }
+        state.removeTopCard(pile);
+    }
+
+    /**
+     * Reverts the most recent move on the path
+     */
+    protected void unmakeMove() {
+        int pile = pathPiles[depth];
+        int card = pathCards[depth];
+        if (pathParks[depth]) {
+            // Empty the worm hole and put the card back on its pile
+            state.removeTopCard(BHLayout.ERR);
+            state.restoreTopCard(pile);
+        }
+        else {
+            if (pile == BHLayout.ERR) {
+                ((WHLayout) state).setWormHole(card);
+            }
+            else {
+                state.restoreTopCard(pile);
+            }
+            state.restoreHole(pathHoles[depth]);
+        }
+        depth--;
+    }
+
+    /**
+     * Adds a move to the move stack of the current level
+     */
+    protected void addMove(int pile, int card, boolean park) {
+        if (moveCount == movePiles.length) {
+            movePiles = Arrays.copyOf(movePiles, moveCount * 2);
+            moveCards = Arrays.copyOf(moveCards, moveCount * 2);
+            moveParks = Arrays.copyOf(moveParks, moveCount * 2);
+        }
+        movePiles[moveCount] = pile;
+        moveCards[moveCount] = card;
+        moveParks[moveCount] = park;
+        moveCount++;
+    }
+
+    /**
+     * Generates every move from the current layout, in the order Solver pushes its children
+     */
+    protected void generateMoves() {
+        int numPiles = state.numPiles();
+        int i, topCard, start = moveCount;
+        int parked = parkedFrom(state);
+        for (i = 0; i < numPiles; i++) {
+            topCard = state.topCard(i);
+            if (topCard >= BHLayout.ONE && findNode(state, i) && canPlay(i, parked)) {
+                addMove(i, topCard, false);
+            }
+        }
+        orderLevel(start);
+        if (isWorm) {
+            // Moves into the worm hole if it is empty, otherwise out of it
+            if (state.topCard(BHLayout.ERR) == BHLayout.ERR) {
+                start = moveCount;
+                for (i = 0; i < numPiles; i++) {
+                    topCard = state.topCard(i);
+                    if (topCard != BHLayout.ERR && canPark(state, i)) {
+                        addMove(i, topCard, true);
+                    }
+                }
+                orderLevel(start);
+            }
+            else if (canPlay(BHLayout.ERR, parked) && findNode(state, BHLayout.ERR)) {
+                addMove(BHLayout.ERR, state.topCard(BHLayout.ERR), false);
+            }
+        }
+    }
+
+    /**
+     * Sorts the moves added since start by the ordering, which all move a top card in the same way
+     * @param start index of the first move to sort
+     */
+    private void orderLevel(int start) {
+        if (ordering.isDefault()) {
+            return;
+        }
+        orderMoves(state, movePiles, start, moveCount);
+        for (int i = start; i < moveCount; i++) {
+            moveCards[i] = state.topCard(movePiles[i]);
+        }
+    }
+
+    /**
+     * Builds the log of moves on the current path
+     * @return new move log
+     */
+    protected MoveLog pathLog() {
+        MoveLog log = MoveLog.EMPTY;
+        for (int d = 1; d <= depth; d++) {
+            log = log.append(pathPiles[d], pathParks[d] ? -pathCards[d] : pathCards[d]);
+        }
+        return log;
+    }
+
+    /**
+     * Records the current layout as a solution
+     */
+    private void recordSolution() {
+        BHLayout copy = isWorm ? new WHLayout(state) : new BHLayout(state);
+        solution = new Node(copy, pathLog());
+        solutions.add(solution);
+    }
+
+    /**
+     * Checks the visited state filter for the node at the current depth, adding it if it is new
+     * @return true if the node has already been visited
+     */
+    protected boolean seen() {
+        return filter.visit(filterKey(state), state.cardsLeft());
+    }
+
+    /**
+     * Checks whether the node at the current depth should be left unexpanded because it is too deep
+     * @return true if its moves should not be searched
+     */
+    protected boolean cutOff() {
+        return false;
+    }
+
+    /**
+     * Called when every move out of the node at the current depth has been searched, before backtracking
+     */
+    protected void finished() {
+    }
+
+    /**
+     * Visits the node at the current depth
+     * @return true if its moves were generated and should now be searched
+     */
+    private boolean visit() {
+        nodesVisited++;
+        // Ignore the node if it is already visited
+        if (seen()) {
+            return false;
+        }
+        boolean solved = isSolution(state);
+        if (solved) {
+            recordSolution();
+            if (!complete) {
+                stopped = true;
+                return false;
+            }
+        }
+        // Skip states which can never be solved
+        if (isDead(state)) {
+            return false;
+        }
+        if (cutOff()) {
+            return false;
+        }
+        first[depth] = moveCount;
+        generateMoves();
+        next[depth] = moveCount;
+        if (moveCount == first[depth] && depth > BHLayout.ZERO && !solved) {
+            ordering.deadEnd(state, pathPiles[depth], pathParks[depth] ? -pathCards[depth] : pathCards[depth]);
+        }
+
+        elapsedTime = (System.nanoTime() - startTime) / CONVERSION;
+        if (checkTimeOut()) {
+            stopped = true;
+        }
+        return true;
+    }
+
+    /**
+     * Runs the depth-first search from the layout using the explicit move stack.
+     * The layout is back at its starting state afterwards unless the search was stopped early.
+     */
+    protected void search() {
+        depth = 0;
+        moveCount = 0;
+        stopped = false;
+        if (visit()) {
+            while (!stopped) {
+                if (next[depth] > first[depth]) {
+                    // Try the next move at this level
+                    int move = --next[depth];
+                    makeMove(movePiles[move], moveCards[move], moveParks[move]);
+                    if (!visit() && !stopped) {
+                        unmakeMove();
+                    }
+                }
+                else {
+                    // Every move at this level has been tried, so backtrack
+                    finished();
+                    moveCount = first[depth];
+                    if (depth == BHLayout.ZERO) {
+                        break;
+                    }
+                    unmakeMove();
+                }
+            }
+        }
+        // Keep the time out value if the search was stopped by it
+        if (elapsedTime != TIMEOUT) {
+            elapsedTime = (System.nanoTime() - startTime) / CONVERSION;
+        }
+        // Take the first solution if running a complete worm hole search, as Solver does
+        if (complete && isWorm) {
+            solution = solutions.size() > BHLayout.ZERO ? solutions.get(BHLayout.ZERO) : null;
+        }
+    }
+
+    /**
+     * Override the run function in Solver
+     * Reroute the execution to the in-place search
+     */
+    @Override
+    public boolean run() {
+        if (!hasRun && !precheckFails()) {
+            try {
+                Node root = pop();
+                state = isWorm ? new WHLayout((WHLayout) root.layout(), ((WHLayout) root.layout()).wormHole()) : new BHLayout(root.layout());
+                startTime = System.nanoTime();
+                search();
+            }
+            catch(OutOfMemoryError oe) {
+                System.err.println("Program out of memory. Exiting ... ");
+                System.exit(BHLayout.ERR);
+            }
+            catch(Exception e) {
+                System.err.println(e.getMessage());
+                System.err.println("Exiting ... ");
+                System.exit(BHLayout.ERR);
+            }
+            hasRun = true;
+        }
+        print();
+
+        return solution != null;
+    }
+
+
+    public InPlaceSolver(BHLayout layout, boolean isWorm, boolean complete, boolean suppress, boolean time, boolean nodes) {
+        super(layout, isWorm, complete, suppress, time, nodes);
+    }
+
+    public InPlaceSolver(BHLayout layout, boolean isWorm, boolean complete, boolean suppress) {
+        this(layout, isWorm, complete, suppress, false, false);
+    }
+
+    public InPlaceSolver(BHLayout layout, boolean isWorm, boolean suppress) {
+        this(layout, isWorm, false, suppress, false, false);
+    }
+}
@@ -0,0 +1,183 @@
+package functions;
+
+import layouts.BHLayout;
+import types.TranspositionTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Iterative deepening solver built on the in-place depth-first search, for decks too large to keep a frontier
+ * or a complete visited set in memory.
+ *
+ * Each iteration searches every sequence of at most limit moves. Every card left takes at least one move to
+ * reach the hole, and a card parked in the worm hole takes two, so the first limit is the number of cards left
+ * and each further iteration allows one more card to be parked. A black hole game never needs more moves than
+ * it has cards, so it is always finished in one iteration. The search stops once an iteration finds a solution,
+ * or finishes without cutting any path short, in which case there is no solution at any depth.
+ *
+ * Memory is the current path plus the visited state filter, which can be bounded with setFilterBudget or turned
+ * off altogether. The filter stores the moves left below each state, so a state is only skipped when it has
+ * already been searched with at least as many moves to spare, or searched completely.
+ * See InPlaceSolver.java for further method implementations
+ */
+public class IterativeDeepeningSolver extends InPlaceSolver {
+
+    // Moves left stored for a state whose search was never cut short by the limit
+    private static final int EXHAUSTED = Integer.MAX_VALUE;
+
+    // Extra moves allowed by each iteration, parking a card and playing it from the worm hole
+    private static final int STEP = BHLayout.PAIR;
+
+    /**
+     * Maximum number of moves on a path in the current iteration
+     */
+    protected int limit;
+
+    /**
+     * Use the visited state filter, memory only grows with the depth of the search if false
+     */
+    protected boolean transposition = true;
+
+    // For each level of the current path: was some path below it cut short by the limit
+    private boolean[] cut = new boolean[BHLayout.PAIR];
+
+    // Limit and number of nodes visited in each iteration run
+    private final ArrayList<Integer> limits = new ArrayList<>();
+    private final ArrayList<Integer> iterationNodes = new ArrayList<>();
+
+
+    // Getters
+    public int getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * Returns the move limit of each iteration run, in order
+     * @return new list
+     */
+    public ArrayList<Integer> getLimits() {
+        return new ArrayList<>(limits);
+    }
+
+    /**
+     * Returns the number of nodes visited by each iteration run, in order
+     * @return new list
+     */
+    public ArrayList<Integer> getIterationNodes() {
+        return new ArrayList<>(iterationNodes);
+    }
+
+    /**
+     * Turns the visited state filter on or off.
+     * Must be called before the solver is run.
+     * @param transposition
+     */
+    public void setTransposition(boolean transposition) {
+        this.transposition = transposition;
+    }
+
+    /**
+     * Skips a state only if it was searched before with at least as many moves left, otherwise records it
+     * @return true if the node has already been searched far enough
+     */
+    @Override
+    protected boolean seen() {
+        if (depth >= cut.length) {
+            cut = Arrays.copyOf(cut, depth * 2);
+        }
+        cut[depth] = false;
+        if (!transposition) {
+            return false;
+        }
+        long key = filterKey(state);
+        int left = limit - depth;
+        int stored = filter.probe(key);
+        if (stored != TranspositionTable.MISSING && stored >= left) {
+            // A search that was cut short may have missed solutions a deeper limit would find
+            if (stored != EXHAUSTED) {
+                cut[depth - 1] = true;
+            }
+            return true;
+        }
+        filter.store(key, left);
+        return false;
+    }
+
+    /**
+     * Checks if a state is dead, storing a dead state as searched completely since no limit can solve it
+     * @param state
+     * @return true if the state should not be expanded
+     */
+    @Override
+    protected boolean isDead(BHLayout state) {
+        if (!super.isDead(state)) {
+            return false;
+        }
+        if (transposition) {
+            filter.store(filterKey(state), EXHAUSTED);
+        }
+        return true;
+    }
+
+    /**
+     * Cuts a path short when the cards left cannot all be moved within the limit
+     * @return true if the node is not to be expanded
+     */
+    @Override
+    protected boolean cutOff() {
+        if (depth + state.cardsLeft() <= limit) {
+            return false;
+        }
+        cut[depth - 1] = true;
+        return true;
+    }
+
+    /**
+     * Passes a cut up to the parent, or marks the state as searched completely
+     */
+    @Override
+    protected void finished() {
+        if (cut[depth]) {
+            if (depth > BHLayout.ZERO) {
+                cut[depth - 1] = true;
+            }
+        }
+        else if (transposition) {
+            filter.store(filterKey(state), EXHAUSTED);
+        }
+    }
+
+    /**
+     * Runs depth-limited searches with increasing limits
+     */
+    @Override
+    protected void search() {
+        limit = state.cardsLeft();
+        while (true) {
+            int before = nodesVisited;
+            super.search();
+            limits.add(limit);
+            iterationNodes.add(nodesVisited - before);
+            // Stopped for a solution or a time out, or nothing was cut short so there is nothing deeper to find
+            if (stopped || !cut[BHLayout.ZERO]) {
+                break;
+            }
+            limit += STEP;
+        }
+    }
+
+
+    public IterativeDeepeningSolver(BHLayout layout, boolean isWorm, boolean complete, boolean suppress, boolean time, boolean nodes) {
+        super(layout, isWorm, complete, suppress, time, nodes);
+    }
+
+    public IterativeDeepeningSolver(BHLayout layout, boolean isWorm, boolean complete, boolean suppress) {
+        this(layout, isWorm, complete, suppress, false, false);
+    }
+
+    public IterativeDeepeningSolver(BHLayout layout, boolean isWorm, boolean suppress) {
+        this(layout, isWorm, false, suppress, false, false);
+    }
+}
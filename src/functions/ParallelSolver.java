@@ -0,0 +1,222 @@
+package functions;
+
+import layouts.BHLayout;
+import layouts.WHLayout;
+import types.ConcurrentStateSet;
+import types.Node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Depth-first solver which searches with several threads in a fork/join pool.
+ *
+ * Each task searches its own stack of nodes depth first. Whenever the pool runs short of queued work,
+ * a task hands the oldest node on its stack (the shallowest, so usually the largest subtree) to a new task
+ * which idle threads can steal. All tasks share one lock-free table of visited states.
+ *
+ * In first-solution mode the first solution found stops every task. In complete mode every task's solutions
+ * are merged once the search is over. Node counts and the order of solutions vary from run to run.
+ * See Solver.java for further method implementations
+ */
+public class ParallelSolver extends Solver {
+
+    // Split off work when fewer than this many tasks are queued beyond the idle threads
+    private static final int SURPLUS = 2;
+
+    /**
+     * Number of worker threads
+     */
+    private final int threads;
+
+    /**
+     * Keys of the states visited by any task
+     */
+    private final ConcurrentStateSet visited;
+
+    /**
+     * First solution found by any task
+     */
+    private final AtomicReference<Node> found = new AtomicReference<>();
+
+    /**
+     * Solutions found by every task in a complete search
+     */
+    private final ConcurrentLinkedQueue<Node> allFound = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder nodes = new LongAdder();
+
+    // Set to stop every task, on a first solution or a time out
+    private volatile boolean cancelled;
+
+    private volatile boolean timedOut;
+
+    private double startTime;
+
+
+    // Getters
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Searches a subtree depth first, handing work to other threads when they run short
+     */
+    private class SearchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Node root;
+
+        SearchTask(Node root) {
+            this.root = root;
+        }
+
+        @Override
+        protected void compute() {
+            ArrayDeque<Node> stack = new ArrayDeque<>();
+            ArrayList<SearchTask> forked = new ArrayList<>();
+            stack.push(root);
+            while (!stack.isEmpty() && !cancelled) {
+                Node node = stack.pop();
+                nodes.increment();
+                BHLayout state = node.layout();
+                // Ignore the node if any task has already visited it
+                if (!visited.add(filterKey(state))) {
+                    continue;
+                }
+                if (isSolution(node)) {
+                    Node copy = new Node(isWorm ? new WHLayout(state) : new BHLayout(state), node.moves());
+                    if (!complete) {
+                        if (found.compareAndSet(null, copy)) {
+                            cancelled = true;
+                        }
+                        break;
+                    }
+                    found.compareAndSet(null, copy);
+                    allFound.add(copy);
+                    if (isWorm) {
+                        continue;
+                    }
+                }
+                expand(node, stack);
+
+                // Give the oldest node to another thread if the pool is short of work
+                if (stack.size() > BHLayout.ONE && getSurplusQueuedTaskCount() < SURPLUS) {
+                    SearchTask task = new SearchTask(stack.removeLast());
+                    task.fork();
+                    forked.add(task);
+                }
+
+                if ((System.nanoTime() - startTime) / CONVERSION > TIMEOUT) {
+                    timedOut = true;
+                    cancelled = true;
+                }
+            }
+            for (SearchTask task : forked) {
+                task.join();
+            }
+        }
+    }
+
+    /**
+     * Pushes the children of a node onto a stack, in the same order as Solver
+     * @param node
+     * @param stack
+     */
+    private void expand(Node node, ArrayDeque<Node> stack) {
+        BHLayout state = node.layout();
+        int numPiles = state.numPiles();
+        int i, topCard;
+        int parked = parkedFrom(state);
+        for (i = 0; i < numPiles; i++) {
+            if (findNode(state, i) && canPlay(i, parked)) {
+                Node newNode = createNewNode(node, i, state.topCard(i), false);
+                if (newNode != null) {
+                    stack.push(newNode);
+                }
+            }
+        }
+        if (!isWorm) {
+            return;
+        }
+        // Expand the node by setting the worm hole to different cards
+        if (state.topCard(BHLayout.ERR) == BHLayout.ERR) {
+            for (i = 0; i < numPiles; i++) {
+                topCard = state.topCard(i);
+                if (topCard != BHLayout.ERR && canPark(state, i)) {
+                    Node newNode = createNewNode(node, i, topCard, true);
+                    if (newNode != null) {
+                        stack.push(newNode);
+                    }
+                }
+            }
+        }
+        // Move the worm hole card to the hole card
+        else if (canPlay(BHLayout.ERR, parked) && findNode(state, BHLayout.ERR)) {
+            Node newNode = createNewNode(node, BHLayout.ERR, state.topCard(BHLayout.ERR), false);
+            if (newNode != null) {
+                stack.push(newNode);
+            }
+        }
+    }
+
+    /**
+     * Override the run function in Solver
+     * Runs the search on a fork/join pool
+     */
+    @Override
+    public boolean run() {
+        if (!hasRun && !precheckFails()) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                startTime = System.nanoTime();
+                pool.invoke(new SearchTask(pop()));
+            }
+            catch(OutOfMemoryError oe) {
+                System.err.println("Program out of memory. Exiting ... ");
+                System.exit(BHLayout.ERR);
+            }
+            catch(Exception e) {
+                System.err.println(e.getMessage());
+                System.err.println("Exiting ... ");
+                System.exit(BHLayout.ERR);
+            }
+            finally {
+                pool.shutdownNow();
+            }
+            elapsedTime = timedOut ? TIMEOUT : (System.nanoTime() - startTime) / CONVERSION;
+            nodesVisited = (int) Math.min(nodes.sum(), Integer.MAX_VALUE);
+            solution = found.get();
+            solutions.addAll(allFound);
+            hasRun = true;
+        }
+        print();
+
+        return solution != null;
+    }
+
+
+    /**
+     * @param layout
+     * @param isWorm
+     * @param complete
+     * @param suppress
+     * @param threads number of worker threads, or less than one for one per processor
+     */
+    public ParallelSolver(BHLayout layout, boolean isWorm, boolean complete, boolean suppress, int threads) {
+        super(layout, isWorm, complete, suppress, false, false);
+        this.threads = threads < BHLayout.ONE ? Runtime.getRuntime().availableProcessors() : threads;
+        this.visited = new ConcurrentStateSet(ConcurrentStateSet.budget(layout, isWorm));
+    }
+
+    public ParallelSolver(BHLayout layout, boolean isWorm, boolean complete, boolean suppress) {
+        this(layout, isWorm, complete, suppress, BHLayout.ZERO);
+    }
+}
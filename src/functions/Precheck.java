@@ -0,0 +1,278 @@
+package functions;
+
+import layouts.BHLayout;
+
+import java.util.Arrays;
+
+
+/**
+ * Checks a layout for a handful of reasons it can never be solved, before any search is started.
+ *
+ * Every rule only ever rejects layouts without a solution, so a layout that passes may still be unsolvable
+ * and has to be searched as usual. The rules, cheapest first:
+ *   - NO_FIRST_MOVE: no card can be played onto the hole card, and in worm hole nothing can be parked either
+ *   - PARITY: with an even number of ranks every card played swaps between odd and even ranks, so the cards
+ *     left must split between odd and even ranks to match
+ *   - ORPHAN: some card can never be played after any other card, see Pruner
+ *   - FORCED: in black hole two cards must both be played straight after the same card
+ *   - CYCLE: in black hole the cards that must be played straight after one another, along with the order
+ *     the piles force, cannot all be put into one sequence
+ */
+public class Precheck {
+
+    /**
+     * Rule that showed a layout cannot be solved
+     */
+    public enum Rule {
+        /**
+         * No rule fired, the layout has to be searched
+         */
+        NONE,
+        NO_FIRST_MOVE,
+        PARITY,
+        ORPHAN,
+        FORCED,
+        CYCLE
+    }
+
+    // Marks the end of a list, or a card with no forced predecessor, successor or chain
+    private static final int MISSING = BHLayout.ERR;
+
+    /**
+     * Runs every rule on a layout
+     * @param layout
+     * @param isWorm is the layout a worm hole game
+     * @return first rule that fired, or NONE
+     */
+    public static Rule run(BHLayout layout, boolean isWorm) {
+        if (layout.cardsLeft() == BHLayout.ZERO) {
+            return Rule.NONE;
+        }
+        if (noFirstMove(layout, isWorm)) {
+            return Rule.NO_FIRST_MOVE;
+        }
+        if (badParity(layout, isWorm)) {
+            return Rule.PARITY;
+        }
+        if (new Pruner().isDead(layout, isWorm)) {
+            return Rule.ORPHAN;
+        }
+        if (!isWorm) {
+            return checkOrder(layout);
+        }
+        return Rule.NONE;
+    }
+
+    /**
+     * Checks whether no move can be made from a layout
+     * @param layout
+     * @param isWorm
+     * @return true if there is no first move
+     */
+    private static boolean noFirstMove(BHLayout layout, boolean isWorm) {
+        int hole = layout.holeCard();
+        for (int p = 0; p < layout.numPiles(); p++) {
+            int card = layout.topCard(p);
+            if (card != BHLayout.ERR && layout.isAdjacent(card, hole)) {
+                return false;
+            }
+        }
+        if (isWorm) {
+            // An empty worm hole can always take a card, a full one can only give its card to the hole
+            int worm = layout.topCard(BHLayout.ERR);
+            return worm != BHLayout.ERR && !layout.isAdjacent(worm, hole);
+        }
+        return true;
+    }
+
+    /**
+     * Checks the split of cards left between odd and even ranks.
+     * With an even number of ranks adjacent ranks always differ in parity, even across the wrap from the highest
+     * rank to the lowest, so the cards played alternate parity starting with the opposite parity to the hole card.
+     * @param layout
+     * @param isWorm
+     * @return true if the split can never be played out
+     */
+    private static boolean badParity(BHLayout layout, boolean isWorm) {
+        int ranks = layout.numRanks();
+        int holeRank = layout.getCardRank(layout.holeCard());
+        if (ranks % BHLayout.PAIR != BHLayout.ZERO || holeRank == BHLayout.ERR) {
+            return false;
+        }
+        int odd = 0;
+        int even = 0;
+        for (int p = 0; p < layout.numPiles(); p++) {
+            for (int i = 0; i < layout.pileSize(p); i++) {
+                int rank = layout.getCardRank(layout.cardAt(p, i));
+                if (rank == BHLayout.ERR) {
+                    return false;
+                }
+                if (rank % BHLayout.PAIR == BHLayout.ZERO) {
+                    even++;
+                }
+                else {
+                    odd++;
+                }
+            }
+        }
+        int worm = isWorm ? layout.topCard(BHLayout.ERR) : BHLayout.ERR;
+        if (worm != BHLayout.ERR) {
+            int rank = layout.getCardRank(worm);
+            if (rank == BHLayout.ERR) {
+                return false;
+            }
+            if (rank % BHLayout.PAIR == BHLayout.ZERO) {
+                even++;
+            }
+            else {
+                odd++;
+            }
+        }
+        // Cards played first, third and so on have the other parity to the hole card
+        int cards = odd + even;
+        int other = (cards + 1) / BHLayout.PAIR;
+        return holeRank % BHLayout.PAIR == BHLayout.ZERO ? odd != other : even != other;
+    }
+
+    /**
+     * Checks the black hole order the layout forces.
+     * A card can only be played straight after a card of an adjacent rank that is not below it in its pile,
+     * or first onto the hole card if it is on top now. When a card has just one such predecessor the two must be
+     * played one after the other. Joining these pairs up gives chains of cards played back to back, and every
+     * card in a pile must be played before the cards below it, so ordering the chains must not go round in a loop.
+     * @param layout
+     * @return FORCED, CYCLE or NONE
+     */
+    private static Rule checkOrder(BHLayout layout) {
+        int numPiles = layout.numPiles();
+        int ranks = layout.numRanks();
+        // Number each card in the piles from the bottom of pile 0 upwards, with the hole card after them
+        int[] offset = new int[numPiles + 1];
+        for (int p = 0; p < numPiles; p++) {
+            offset[p + 1] = offset[p] + layout.pileSize(p);
+        }
+        int cards = offset[numPiles];
+        int hole = cards;
+        int[] pileOf = new int[cards];
+        int[] card = new int[cards];
+        // Cards of each rank, as a list through the ids in order
+        int[] head = new int[ranks + 1];
+        int[] link = new int[cards];
+        Arrays.fill(head, MISSING);
+        for (int p = numPiles - 1; p >= 0; p--) {
+            for (int i = layout.pileSize(p) - 1; i >= 0; i--) {
+                int id = offset[p] + i;
+                pileOf[id] = p;
+                card[id] = layout.cardAt(p, i);
+                int rank = layout.getCardRank(card[id]);
+                link[id] = head[rank];
+                head[rank] = id;
+            }
+        }
+
+        // Find each card's predecessor when it only has one
+        int[] prev = new int[cards + 1];
+        int[] next = new int[cards + 1];
+        Arrays.fill(prev, MISSING);
+        Arrays.fill(next, MISSING);
+        for (int id = 0; id < cards; id++) {
+            int rank = layout.getCardRank(card[id]);
+            int up = layout.rankAbove(rank);
+            int down = layout.rankBelow(rank);
+            int found = MISSING;
+            int count = 0;
+            if (id == offset[pileOf[id] + 1] - 1 && layout.isAdjacent(card[id], layout.holeCard())) {
+                found = hole;
+                count++;
+            }
+            int adjacent = up == down ? BHLayout.ONE : BHLayout.PAIR;
+            for (int k = 0; k < adjacent && count < BHLayout.PAIR; k++) {
+                int r = k == 0 ? up : down;
+                for (int other = head[r]; other != MISSING && count < BHLayout.PAIR; other = link[other]) {
+                    // Cards below this one in its pile are played after it
+                    if (other != id && (pileOf[other] != pileOf[id] || other > id)) {
+                        found = other;
+                        count++;
+                    }
+                }
+            }
+            if (count == BHLayout.ONE) {
+                if (next[found] != MISSING) {
+                    return Rule.FORCED;
+                }
+                next[found] = id;
+                prev[id] = found;
+            }
+        }
+
+        // Lay the forced pairs out as chains, a card left over is on a loop of forced pairs
+        int[] chain = new int[cards + 1];
+        int[] position = new int[cards + 1];
+        Arrays.fill(chain, MISSING);
+        int chains = 0;
+        for (int id = 0; id <= cards; id++) {
+            if (prev[id] == MISSING) {
+                int pos = 0;
+                for (int c = id; c != MISSING; c = next[c]) {
+                    chain[c] = chains;
+                    position[c] = pos++;
+                }
+                chains++;
+            }
+        }
+        for (int id = 0; id <= cards; id++) {
+            if (chain[id] == MISSING) {
+                return Rule.CYCLE;
+            }
+        }
+
+        // Each card is played before the card under it, and the hole card before every card
+        int edges = 0;
+        int[] from = new int[2 * cards];
+        int[] to = new int[2 * cards];
+        for (int id = 0; id < cards; id++) {
+            if (id > offset[pileOf[id]]) {
+                from[edges] = id;
+                to[edges++] = id - 1;
+            }
+            from[edges] = hole;
+            to[edges++] = id;
+        }
+        int[] inDegree = new int[chains];
+        int[] outHead = new int[chains];
+        int[] outLink = new int[edges];
+        Arrays.fill(outHead, MISSING);
+        for (int e = 0; e < edges; e++) {
+            int a = chain[from[e]];
+            int b = chain[to[e]];
+            if (a == b) {
+                // Within a chain the order is fixed already
+                if (position[from[e]] > position[to[e]]) {
+                    return Rule.CYCLE;
+                }
+                continue;
+            }
+            outLink[e] = outHead[a];
+            outHead[a] = e;
+            inDegree[b]++;
+        }
+
+        // Take chains with nothing left before them until none remain, or a loop stops us
+        int[] ready = new int[chains];
+        int count = 0;
+        for (int c = 0; c < chains; c++) {
+            if (inDegree[c] == BHLayout.ZERO) {
+                ready[count++] = c;
+            }
+        }
+        for (int taken = 0; taken < count; taken++) {
+            for (int e = outHead[ready[taken]]; e != MISSING; e = outLink[e]) {
+                int b = chain[to[e]];
+                if (--inDegree[b] == BHLayout.ZERO) {
+                    ready[count++] = b;
+                }
+            }
+        }
+        return count == chains ? Rule.NONE : Rule.CYCLE;
+    }
+}
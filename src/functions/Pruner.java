@@ -0,0 +1,44 @@
+package functions;
+
+import layouts.BHLayout;
+import types.Predecessors;
+
+
+/**
+ * Cheap check for states that can never be solved, run by a solver before it expands a node.
+ *
+ * Every card left must at some point be played straight after a card of an adjacent rank that leaves it on
+ * top of its pile, or onto the hole card. If some card has no card left that may be played before it, counted
+ * as Predecessors describes, it can never be played and the state is dead. This also covers a rank with no
+ * adjacent cards left at all.
+ *
+ * The check only ever rejects states without a solution, so it never changes whether a layout is solvable.
+ */
+public class Pruner {
+
+    private final Predecessors predecessors = new Predecessors();
+
+    // Number of states rejected so far
+    private long pruned = 0;
+
+
+    // Getters
+    public long pruned() {
+        return pruned;
+    }
+
+    /**
+     * Checks whether a state can be shown to have no solution
+     * @param layout
+     * @param isWorm is the layout a worm hole game
+     * @return true if the state is dead
+     */
+    public boolean isDead(BHLayout layout, boolean isWorm) {
+        // Any card outside the deck can never be played either
+        boolean dead = predecessors.atMost(layout, isWorm, BHLayout.ZERO) != BHLayout.ZERO;
+        if (dead) {
+            pruned++;
+        }
+        return dead;
+    }
+}
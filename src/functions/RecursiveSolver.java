@@ -4,17 +4,12 @@ import layouts.BHLayout;
 import types.Node;
 import layouts.WHLayout;
 
-import java.util.HashSet;
-
 
 /**
  * This function recursively solves a given puzzle
  * See Solver.java for further method implementations
  */
 public class RecursiveSolver extends Solver {
-    // Filter used to ignore visited nodes
-    private HashSet<BHLayout> filter = new HashSet<>();
-
 
     // Stores the start time of the recursive algorithm in nano seconds
     private double startTime;
@@ -31,23 +26,35 @@ public class RecursiveSolver extends Solver {
         }
         nodesVisited++;
         // Ignore node if it is already visited
-        if (!filter.contains(node.layout())) {
-            filter.add(node.layout());
+        if (!filter.visit(filterKey(node.layout()), node.layout().cardsLeft())) {
             BHLayout state = node.layout();
             // Check if this state is a solution
             if (isSolution(node)) {
                 // Check if this is a complete search so continue recursively descending
                 if (complete) {
-                    solution = new Node(new BHLayout(node.layout()), node.copyLog());
+                    solution = new Node(new BHLayout(node.layout()), node.moves());
                     solutions.add(solution);
                 } else {
                     // Return out of the function
-                    solution = new Node(new BHLayout(node.layout()), node.copyLog());
+                    solution = new Node(new BHLayout(node.layout()), node.moves());
                     // Take the elapsed time now
                     this.elapsedTime = (System.nanoTime() - startTime) / CONVERSION;
                     return;
                 }
             }
+            // Look states with few enough cards left up instead of searching below them
+            if (inTablebase(state)) {
+                Node end = finish(node);
+                if (end != null) {
+                    solution = new Node(new BHLayout(end.layout()), end.moves());
+                    this.elapsedTime = (System.nanoTime() - startTime) / CONVERSION;
+                }
+                return;
+            }
+            // Skip states which can never be solved
+            if (isDead(state)) {
+                return;
+            }
             // Expand this node by creating new nodes and recursively visiting them
             int numPiles = state.numPiles();
             int i;
@@ -79,27 +86,31 @@ public class RecursiveSolver extends Solver {
         nodesVisited++;
 
         // Filter out visited nodes
-        if (!filter.contains(node.layout())) {
+        if (!filter.visit(filterKey(node.layout()), node.layout().cardsLeft())) {
             WHLayout state = (WHLayout) node.layout();
-            filter.add(state);
             if (isSolution(node)) {
                 // If we want to complete the search tree then add to the list of solutions
                 if (complete) {
-                    solution = new Node(new WHLayout(node.layout()), node.copyLog());
+                    solution = new Node(new WHLayout(node.layout()), node.moves());
                     this.solutions.add(solution);
                 }
                 else {
                     // Else we take the first solution
-                    solution = new Node(new WHLayout(node.layout()), node.copyLog());
+                    solution = new Node(new WHLayout(node.layout()), node.moves());
                     this.elapsedTime = (System.nanoTime() - startTime) /CONVERSION;
                 }
                 return;
             }
+            // Skip states which can never be solved
+            if (isDead(state)) {
+                return;
+            }
             // Expand the node
             int numPiles = state.numPiles();
             int i, topCard;
+            int parked = parkedFrom(state);
             for (i = 0; i < numPiles; i++) {
-                if (findNode(state, i)) {
+                if (findNode(state, i) && canPlay(i, parked)) {
                     Node newNode = createNewNode(node, i, state.topCard(i), false);
                     if (newNode != null) {
                         recursiveSolveWorm(newNode);
@@ -114,7 +125,7 @@ public class RecursiveSolver extends Solver {
             if (state.topCard(BHLayout.ERR) == BHLayout.ERR) {
                 for (i = 0; i < numPiles; i++) {
                     topCard = state.topCard(i);
-                    if (topCard != BHLayout.ERR) {
+                    if (topCard != BHLayout.ERR && canPark(state, i)) {
                         Node newNode = createNewNode(node, i, topCard, true);
                         if (newNode != null) {
                             recursiveSolveWorm(newNode);
@@ -126,7 +137,7 @@ public class RecursiveSolver extends Solver {
                 }
             }
             // If we can move the worm hole card to the hole card then visit this node
-            else if (findNode(state, BHLayout.ERR)) {
+            else if (canPlay(BHLayout.ERR, parked) && findNode(state, BHLayout.ERR)) {
 
                 topCard = state.topCard(BHLayout.ERR);
                 Node newNode = createNewNode(node, BHLayout.ERR, topCard, false);
@@ -146,7 +157,7 @@ public class RecursiveSolver extends Solver {
     @Override
     public boolean run() {
         // Only run if we have not yet solved the puzzle
-        if (!hasRun) {
+        if (!hasRun && !precheckFails()) {
             try {
                 if (isWorm) {
                     startTime = System.nanoTime();
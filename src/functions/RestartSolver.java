@@ -0,0 +1,317 @@
+package functions;
+
+import layouts.BHLayout;
+import layouts.WHLayout;
+import types.ConcurrentStateSet;
+import types.RandomOrdering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Solver which runs many short depth-first rollouts, each with its own random move order, instead of one long
+ * search that can get stuck below a bad early move.
+ *
+ * Each rollout is an in-place depth-first search that is abandoned after a number of nodes following the Luby
+ * sequence 1, 1, 2, 1, 1, 2, 4, ... times the unit, so most rollouts are short but every so often one is long
+ * enough to finish. Whenever a rollout searches every move out of a state without finding a solution that
+ * state is dead, and it is skipped by every later rollout. The search stops once a rollout finds a solution,
+ * or finishes without being abandoned, which proves there is none.
+ *
+ * Rollouts run in rounds of one per thread. Dead states found in a round are only shared once the round is
+ * over, and the solution kept is the one from the earliest rollout, so a run is the same every time for a
+ * given seed and number of threads.
+ * See Solver.java for further method implementations
+ */
+public class RestartSolver extends Solver {
+
+    /**
+     * Default number of nodes in the shortest rollout
+     */
+    public static final int DEFAULT_UNIT = 1 << 10;
+
+    /**
+     * Default seed of the move orders
+     */
+    public static final long DEFAULT_SEED = 0L;
+
+    private final long seed;
+
+    private final int threads;
+
+    private final int unit;
+
+    /**
+     * Keys of the states shown to be dead by any finished round
+     */
+    private final ConcurrentStateSet dead;
+
+    // Number of rollouts run
+    private int restarts = 0;
+
+    private double startTime;
+
+
+    // Getters
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public int getThreads() {
+        return this.threads;
+    }
+
+    public int getUnit() {
+        return this.unit;
+    }
+
+    public int getRestarts() {
+        return this.restarts;
+    }
+
+    /**
+     * @return number of states shown to be dead
+     */
+    public long getDeadStates() {
+        return dead.size();
+    }
+
+    /**
+     * Finds a term of the Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ...
+     * @param i position in the sequence, starting from 1
+     * @return term at that position
+     */
+    public static long luby(int i) {
+        while (true) {
+            // Find the smallest k with 2^k - 1 at or after i
+            int k = 1;
+            while ((1L << k) - 1 < i) {
+                k++;
+            }
+            if ((1L << k) - 1 == i) {
+                return 1L << (k - 1);
+            }
+            // Otherwise the sequence repeats itself from the start of the last block
+            i -= (1 << (k - 1)) - 1;
+        }
+    }
+
+    /**
+     * One depth-first rollout with a random move order and a node limit
+     */
+    private class Rollout extends InPlaceSolver {
+
+        // Move order, reseeded for every restart
+        private final RandomOrdering shuffle = new RandomOrdering(DEFAULT_SEED);
+
+        private long cutoff;
+
+        // Set if the rollout reached its node limit
+        private boolean abandoned = false;
+
+        // Keys of the states this rollout showed to be dead
+        private long[] found = new long[BHLayout.PAIR];
+        private int count = 0;
+
+        /**
+         * Skips states shown to be dead by earlier rounds as well as states visited by this rollout
+         * @return true if the node has already been searched
+         */
+        @Override
+        protected boolean seen() {
+            return dead.contains(filterKey(state)) || super.seen();
+        }
+
+        /**
+         * Abandons the rollout once it reaches its node limit
+         * @return true if the node is not to be expanded
+         */
+        @Override
+        protected boolean cutOff() {
+            if (nodesVisited <= cutoff) {
+                return false;
+            }
+            abandoned = true;
+            stopped = true;
+            return true;
+        }
+
+        /**
+         * Every move out of the state was searched without a solution, so it is dead
+         */
+        @Override
+        protected void finished() {
+            if (count == found.length) {
+                found = Arrays.copyOf(found, count * 2);
+            }
+            found[count++] = filterKey(state);
+        }
+
+        /**
+         * @return true if the rollout finished its search without reaching the node limit or the time out
+         */
+        boolean exhausted() {
+            return !abandoned && solution == null && elapsedTime < TIMEOUT;
+        }
+
+        /**
+         * Gets the rollout ready to search from the root again, keeping its filter's capacity and move stacks
+         * @param seed seed of the move order
+         * @param cutoff node limit
+         */
+        void restart(long seed, long cutoff) {
+            // Undo the path left by a rollout which stopped early
+            while (depth > BHLayout.ZERO) {
+                unmakeMove();
+            }
+            shuffle.setSeed(seed);
+            this.cutoff = cutoff;
+            filter.clear();
+            solutions.clear();
+            solution = null;
+            nodesVisited = 0;
+            elapsedTime = 0;
+            abandoned = false;
+            count = 0;
+            startTime = RestartSolver.this.startTime;
+        }
+
+        Rollout(BHLayout root) {
+            super(root, RestartSolver.this.isWorm, false, true);
+            setOrdering(shuffle);
+            setPruning(RestartSolver.this.pruner != null);
+            setSymmetry(RestartSolver.this.symmetry);
+            setDominance(RestartSolver.this.dominance.toArray(new Dominance.Rule[0]));
+            state = isWorm ? new WHLayout((WHLayout) root, ((WHLayout) root).wormHole()) : new BHLayout(root);
+        }
+    }
+
+    /**
+     * Runs rounds of rollouts until one finds a solution, one proves there is none, or the time runs out
+     * @param root starting layout
+     * @param pool threads to run a round on, or null to run on this thread
+     */
+    private void search(BHLayout root, ExecutorService pool) throws InterruptedException, ExecutionException {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        long nodes = 0;
+        boolean done = false;
+        // One rollout per thread, restarted every round rather than rebuilt
+        ArrayList<Rollout> round = new ArrayList<>(threads);
+        ArrayList<Callable<Void>> tasks = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            Rollout rollout = new Rollout(root);
+            round.add(rollout);
+            tasks.add(() -> {
+                rollout.search();
+                return null;
+            });
+        }
+        while (!done) {
+            for (int t = 0; t < threads; t++) {
+                round.get(t).restart(seeds.nextLong(), unit * luby(restarts + t + 1));
+            }
+            if (pool == null) {
+                for (Rollout rollout : round) {
+                    rollout.search();
+                }
+            }
+            else {
+                for (Future<Void> result : pool.invokeAll(tasks)) {
+                    result.get();
+                }
+            }
+
+            // Merge the round in rollout order
+            for (Rollout rollout : round) {
+                nodes += rollout.getNodesVisited();
+                if (rollout.solution != null && solution == null) {
+                    solution = rollout.solution;
+                    solutions.add(solution);
+                }
+                for (int i = 0; i < rollout.count; i++) {
+                    dead.add(rollout.found[i]);
+                }
+                done = done || rollout.exhausted();
+            }
+            restarts += round.size();
+            elapsedTime = (System.nanoTime() - startTime) / CONVERSION;
+            if (solution != null) {
+                done = true;
+            }
+            else if (checkTimeOut()) {
+                done = true;
+            }
+        }
+        nodesVisited = (int) Math.min(nodes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Override the run function in Solver
+     * Runs rounds of rollouts, on a thread pool if there is more than one thread
+     */
+    @Override
+    public boolean run() {
+        if (!hasRun && !precheckFails()) {
+            ExecutorService pool = threads > BHLayout.ONE ? Executors.newFixedThreadPool(threads) : null;
+            try {
+                startTime = System.nanoTime();
+                search(pop().layout(), pool);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch(OutOfMemoryError oe) {
+                System.err.println("Program out of memory. Exiting ... ");
+                System.exit(BHLayout.ERR);
+            }
+            catch(Exception e) {
+                System.err.println(e.getMessage());
+                System.err.println("Exiting ... ");
+                System.exit(BHLayout.ERR);
+            }
+            finally {
+                if (pool != null) {
+                    pool.shutdownNow();
+                }
+            }
+            hasRun = true;
+        }
+        print();
+
+        return solution != null;
+    }
+
+
+    /**
+     * @param layout puzzle layout
+     * @param isWorm are we solving a worm hole variation ?
+     * @param suppress suppress stdout output
+     * @param time print the time taken
+     * @param nodes print the number of nodes visited
+     * @param seed seed of the move orders
+     * @param threads number of rollouts run at once, or less than one for one per processor
+     * @param unit number of nodes in the shortest rollout
+     */
+    public RestartSolver(BHLayout layout, boolean isWorm, boolean suppress, boolean time, boolean nodes, long seed, int threads, int unit) {
+        super(layout, isWorm, false, suppress, time, nodes);
+        this.seed = seed;
+        this.threads = threads < BHLayout.ONE ? Runtime.getRuntime().availableProcessors() : threads;
+        this.unit = Math.max(unit, BHLayout.ONE);
+        this.dead = new ConcurrentStateSet(ConcurrentStateSet.budget(layout, isWorm));
+    }
+
+    public RestartSolver(BHLayout layout, boolean isWorm, boolean suppress, long seed, int threads) {
+        this(layout, isWorm, suppress, false, false, seed, threads, DEFAULT_UNIT);
+    }
+
+    public RestartSolver(BHLayout layout, boolean isWorm, boolean suppress) {
+        this(layout, isWorm, suppress, false, false, DEFAULT_SEED, BHLayout.ONE, DEFAULT_UNIT);
+    }
+}
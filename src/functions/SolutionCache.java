@@ -0,0 +1,465 @@
+package functions;
+
+import layouts.BHLayout;
+import layouts.WHLayout;
+import layouts.Zobrist;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+
+/**
+ * Cache of solver results kept in a memory-mapped file, so a deal solved once is answered straight away on later runs.
+ *
+ * Entries are keyed by a hash of everything in the starting layout: the deck, the hole card, every card of every
+ * pile and, in worm hole, the worm hole card. The file starts with a header and a fixed table of buckets, each
+ * holding a key and the position of its entry, found by linear probing. Entries are appended after the table and
+ * hold the status, the solution moves, the number of nodes visited and the version of the solvers that found them.
+ * Only SOLVED and UNSOLVABLE results are stored, as time outs depend on the machine.
+ *
+ * An entry is only used if its checksum, key, layout digest and version all match, and a solution is only used
+ * if Checker accepts it for the layout, so a stale or corrupted entry is treated as a miss and replaced.
+ * Once the buckets near a key are all taken, results for it are no longer stored.
+ */
+public class SolutionCache implements Closeable {
+
+    /**
+     * System property naming the cache file used by BHMain
+     */
+    public static final String PROPERTY = "bh.cache";
+
+    /**
+     * Version of the solvers, entries from any other version are ignored.
+     * Increase whenever a change could make a stored result wrong.
+     */
+    public static final int ENGINE_VERSION = 1;
+
+    /**
+     * Default number of buckets in a new cache file
+     */
+    public static final int DEFAULT_BUCKETS = 1 << 16;
+
+    /**
+     * Result read from the cache
+     */
+    public static final class Entry {
+
+        private final Solver.Status status;
+
+        private final ArrayList<Integer> moves;
+
+        private final long nodes;
+
+        // Getters
+        public Solver.Status status() {
+            return status;
+        }
+
+        /**
+         * @return pile and card of every move in turn, empty if unsolvable
+         */
+        public ArrayList<Integer> moves() {
+            return new ArrayList<>(moves);
+        }
+
+        /**
+         * @return number of nodes the solver visited when the entry was stored
+         */
+        public long nodes() {
+            return nodes;
+        }
+
+        Entry(Solver.Status status, ArrayList<Integer> moves, long nodes) {
+            this.status = status;
+            this.moves = moves;
+            this.nodes = nodes;
+        }
+    }
+
+    // Identifies a cache file, and the version of its layout
+    private static final int MAGIC = 0x42484331;
+    private static final int FORMAT = 1;
+
+    // Header: magic, format, number of buckets, end of the entries
+    private static final int HEADER_BYTES = 24;
+    private static final int BUCKETS_AT = 8;
+    private static final int END_AT = 16;
+
+    // Bucket: key and position of the entry, 0 for an empty bucket
+    private static final int BUCKET_BYTES = 16;
+
+    // Number of buckets searched from a key's home bucket
+    private static final int PROBES = 16;
+
+    // Entry: length, key, digest, version, status, nodes, move count, then the moves and a checksum
+    private static final int ENTRY_BYTES = 36;
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    private final int buckets;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long rejected = 0;
+
+
+    // Getters
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    /**
+     * @return number of lookups which found an entry that was stale, corrupted or held an invalid solution
+     */
+    public long rejected() {
+        return rejected;
+    }
+
+    /**
+     * Opens the cache named by the bh.cache system property
+     * @return the cache, or null if the property is not set or the file cannot be used
+     */
+    public static SolutionCache fromProperty() {
+        String path = System.getProperty(PROPERTY);
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        try {
+            return new SolutionCache(new File(path));
+        }
+        catch (IOException e) {
+            System.err.println("Solution cache unavailable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Lists every number that makes up a starting layout, in a fixed order
+     * @param layout
+     * @param isWorm
+     * @return new array
+     */
+    private static int[] contents(BHLayout layout, boolean isWorm) {
+        int size = 6 + layout.cardsLeft() + layout.numPiles();
+        int[] values = new int[size];
+        int n = 0;
+        values[n++] = layout.numRanks();
+        values[n++] = layout.numSuits();
+        values[n++] = layout.numPiles();
+        values[n++] = layout.holeCard();
+        values[n++] = isWorm ? BHLayout.ONE : BHLayout.ZERO;
+        values[n++] = isWorm ? layout.topCard(BHLayout.ERR) : BHLayout.ERR;
+        for (int p = 0; p < layout.numPiles(); p++) {
+            for (int i = 0; i < layout.pileSize(p); i++) {
+                values[n++] = layout.cardAt(p, i);
+            }
+            values[n++] = BHLayout.ERR;
+        }
+        return values;
+    }
+
+    /**
+     * Hashes every number of a starting layout
+     * @param layout
+     * @param isWorm
+     * @return 64-bit key, never 0
+     */
+    public static long key(BHLayout layout, boolean isWorm) {
+        long hash = 0L;
+        for (int value : contents(layout, isWorm)) {
+            hash = Zobrist.mix(hash + value);
+        }
+        return hash == 0L ? 1L : hash;
+    }
+
+    /**
+     * Works out a second, independent hash of a starting layout, checked along with the key
+     * @param layout
+     * @param isWorm
+     * @return CRC-32 of the layout
+     */
+    private static int digest(BHLayout layout, boolean isWorm) {
+        int[] values = contents(layout, isWorm);
+        ByteBuffer bytes = ByteBuffer.allocate(values.length * Integer.BYTES);
+        bytes.asIntBuffer().put(values);
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * @param key
+     * @param probe number of buckets already searched
+     * @return position of the bucket in the file
+     */
+    private long bucket(long key, int probe) {
+        int index = (int) ((Zobrist.mix(key) + probe) & (buckets - 1));
+        return HEADER_BYTES + (long) index * BUCKET_BYTES;
+    }
+
+    /**
+     * Looks a starting layout up in the cache
+     * @param layout
+     * @param isWorm
+     * @return the stored result, or null if there is no usable entry
+     */
+    public Entry lookup(BHLayout layout, boolean isWorm) {
+        long key = key(layout, isWorm);
+        for (int probe = 0; probe < PROBES; probe++) {
+            long at = bucket(key, probe);
+            long offset = buffer.getLong((int) at + Long.BYTES);
+            if (offset == 0L) {
+                break;
+            }
+            if (buffer.getLong((int) at) == key) {
+                Entry entry = read(offset, key, digest(layout, isWorm), layout, isWorm);
+                if (entry == null) {
+                    rejected++;
+                    misses++;
+                }
+                else {
+                    hits++;
+                }
+                return entry;
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Reads and checks the entry at a position in the file
+     * @return the entry, or null if it does not pass every check
+     */
+    private Entry read(long offset, long key, int digest, BHLayout layout, boolean isWorm) {
+        long end = buffer.getLong(END_AT);
+        long tableEnd = HEADER_BYTES + (long) buckets * BUCKET_BYTES;
+        if (offset < tableEnd || offset + ENTRY_BYTES + Integer.BYTES > end || end > buffer.capacity()) {
+            return null;
+        }
+        int at = (int) offset;
+        int length = buffer.getInt(at);
+        if (length < ENTRY_BYTES + Integer.BYTES || offset + length > end) {
+            return null;
+        }
+        byte[] bytes = new byte[length - Integer.BYTES];
+        ByteBuffer view = buffer.duplicate();
+        view.position(at);
+        view.get(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        if ((int) crc.getValue() != buffer.getInt(at + length - Integer.BYTES)) {
+            return null;
+        }
+        ByteBuffer entry = ByteBuffer.wrap(bytes);
+        entry.getInt();
+        if (entry.getLong() != key || entry.getInt() != digest || entry.getInt() != ENGINE_VERSION) {
+            return null;
+        }
+        int status = entry.getInt();
+        long nodes = entry.getLong();
+        int count = entry.getInt();
+        if (status < 0 || status >= Solver.Status.values().length || count < 0
+                || length != ENTRY_BYTES + count * Integer.BYTES + Integer.BYTES) {
+            return null;
+        }
+        ArrayList<Integer> moves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            moves.add(entry.getInt());
+        }
+        Solver.Status result = Solver.Status.values()[status];
+        if (result == Solver.Status.SOLVED) {
+            BHLayout copy = isWorm ? new WHLayout((WHLayout) layout, ((WHLayout) layout).wormHole()) : new BHLayout(layout);
+            if (!new Checker(copy, new ArrayList<>(moves), isWorm, true).run()) {
+                return null;
+            }
+        }
+        else if (result != Solver.Status.UNSOLVABLE || count != BHLayout.ZERO) {
+            return null;
+        }
+        return new Entry(result, moves, nodes);
+    }
+
+    /**
+     * Stores the result of a solver that has been run on a starting layout, if it is SOLVED or UNSOLVABLE
+     * @param layout the layout the solver started from
+     * @param isWorm
+     * @param solver
+     * @return true if the result was stored
+     * @throws IOException if the file cannot be written
+     */
+    public boolean store(BHLayout layout, boolean isWorm, Solver solver) throws IOException {
+        Solver.Status status = solver.getStatus();
+        if (status != Solver.Status.SOLVED && status != Solver.Status.UNSOLVABLE) {
+            return false;
+        }
+        ArrayList<Integer> moves = status == Solver.Status.SOLVED
+                ? Checker.unwrapLog(solver.getSolution().moves()) : new ArrayList<>();
+        long key = key(layout, isWorm);
+        int length = ENTRY_BYTES + moves.size() * Integer.BYTES + Integer.BYTES;
+        ByteBuffer entry = ByteBuffer.allocate(length);
+        entry.putInt(length);
+        entry.putLong(key);
+        entry.putInt(digest(layout, isWorm));
+        entry.putInt(ENGINE_VERSION);
+        entry.putInt(status.ordinal());
+        entry.putLong(solver.getNodesVisited());
+        entry.putInt(moves.size());
+        for (int move : moves) {
+            entry.putInt(move);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(entry.array(), 0, length - Integer.BYTES);
+        entry.putInt((int) crc.getValue());
+
+        // Other runs may be using the same file
+        FileLock lock = channel.lock();
+        try {
+            if (channel.size() > buffer.capacity()) {
+                remap(channel.size());
+            }
+            long at = BHLayout.ERR;
+            for (int probe = 0; probe < PROBES && at == BHLayout.ERR; probe++) {
+                long slot = bucket(key, probe);
+                if (buffer.getLong((int) slot + Long.BYTES) == 0L || buffer.getLong((int) slot) == key) {
+                    at = slot;
+                }
+            }
+            if (at == BHLayout.ERR) {
+                return false;
+            }
+            long end = buffer.getLong(END_AT);
+            if (end + length > Integer.MAX_VALUE) {
+                return false;
+            }
+            if (end + length > buffer.capacity()) {
+                remap(Math.max(end + length, (long) buffer.capacity() * BHLayout.PAIR));
+            }
+            // Write the entry before pointing a bucket at it, so a run stopped half way leaves no broken bucket
+            ByteBuffer view = buffer.duplicate();
+            view.position((int) end);
+            view.put(entry.array());
+            buffer.putLong((int) at, key);
+            buffer.putLong((int) at + Long.BYTES, end);
+            buffer.putLong(END_AT, end + length);
+            buffer.force();
+        }
+        finally {
+            lock.release();
+        }
+        return true;
+    }
+
+    /**
+     * Prints a cached result in the same form as Solver
+     * @param layout
+     * @param isWorm
+     * @return true if the layout was in the cache
+     */
+    public boolean print(BHLayout layout, boolean isWorm) {
+        Entry entry = lookup(layout, isWorm);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.status() == Solver.Status.UNSOLVABLE) {
+            System.out.println(BHLayout.ZERO);
+            return true;
+        }
+        StringBuilder line = new StringBuilder();
+        line.append(BHLayout.ONE).append(' ');
+        for (int move : entry.moves) {
+            line.append(move).append(' ');
+        }
+        System.out.print(line);
+        return true;
+    }
+
+    /**
+     * Maps the file again, growing it if needed
+     * @param size new size of the file in bytes
+     */
+    private void remap(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Solution cache is full");
+        }
+        if (file.length() < size) {
+            file.setLength(size);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        file.close();
+    }
+
+
+    /**
+     * Opens a cache file, creating it with the default number of buckets if it is empty
+     * @param path
+     * @throws IOException if the file cannot be opened or is not a cache file
+     */
+    public SolutionCache(File path) throws IOException {
+        this(path, DEFAULT_BUCKETS);
+    }
+
+    /**
+     * @param path cache file
+     * @param buckets number of buckets if the file is new, rounded up to a power of two
+     * @throws IOException if the file cannot be opened or is not a cache file
+     */
+    public SolutionCache(File path, int buckets) throws IOException {
+        this.file = new RandomAccessFile(path, "rw");
+        this.channel = file.getChannel();
+        try {
+            FileLock lock = channel.lock();
+            try {
+                if (channel.size() == 0L) {
+                    int count = Integer.highestOneBit(Math.max(buckets, BHLayout.ONE) * 2 - 1);
+                    long tableEnd = HEADER_BYTES + (long) count * BUCKET_BYTES;
+                    remap(tableEnd);
+                    buffer.putInt(0, MAGIC);
+                    buffer.putInt(Integer.BYTES, FORMAT);
+                    buffer.putInt(BUCKETS_AT, count);
+                    buffer.putLong(END_AT, tableEnd);
+                    buffer.force();
+                }
+                else {
+                    remap(channel.size());
+                }
+            }
+            finally {
+                lock.release();
+            }
+        }
+        catch (IOException e) {
+            close();
+            throw e;
+        }
+        int count = buffer.capacity() >= HEADER_BYTES ? buffer.getInt(BUCKETS_AT) : BHLayout.ZERO;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != FORMAT
+                || count <= 0 || Integer.bitCount(count) != BHLayout.ONE
+                || buffer.capacity() < HEADER_BYTES + (long) count * BUCKET_BYTES) {
+            close();
+            throw new IOException("Not a solution cache: " + path);
+        }
+        this.buckets = count;
+    }
+}
@@ -1,5 +1,11 @@
 package functions;
+import types.Frontier;
+import types.MoveLog;
+import types.MoveOrdering;
 import types.Node;
+import types.PileOrdering;
+import types.StackFrontier;
+import types.TranspositionTable;
 import types.Tuple;
 import layouts.BHLayout;
 import layouts.WHLayout;
@@ -7,7 +13,8 @@ import layouts.WHLayout;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.EnumSet;
 
 
 /**
@@ -16,6 +23,27 @@ import java.util.HashSet;
  */
 public class Solver {
 
+    /**
+     * Outcome of a search
+     */
+    public enum Status {
+        /**
+         * A solution was found
+         */
+        SOLVED,
+        /**
+         * The search finished without finding a solution
+         */
+        UNSOLVABLE,
+        /**
+         * The search ran out of time before finding a solution
+         */
+        TIMEOUT,
+        /**
+         * The search finished without finding a solution, but left some states unexpanded to save memory
+         */
+        UNKNOWN
+    }
 
     /**
      * Conversion value for converting nanoseconds to milliseconds
@@ -52,9 +80,66 @@ public class Solver {
     protected boolean displayNodeCount;
 
     /**
-     * Stores a list of nodes which represent different states in the abstracted search tree
+     * Stores the nodes which represent different states in the abstracted search tree that are yet to be expanded
+     */
+    protected Frontier frontier;
+
+    /**
+     * Filters visited states by their Zobrist keys within a fixed memory budget
+     */
+    protected TranspositionTable filter = new TranspositionTable();
+
+    /**
+     * Decides which of the moves out of a state are tried first
+     */
+    protected MoveOrdering ordering = new PileOrdering();
+
+    /**
+     * Rejects states that can be shown to have no solution before they are expanded, or null to expand every state
+     */
+    protected Pruner pruner = null;
+
+    /**
+     * Checks the layout for reasons it cannot be solved before searching it
+     */
+    protected boolean precheck = false;
+
+    /**
+     * Filters visited states by their symmetry keys, so states that only differ by suit or pile order are searched once
+     */
+    protected boolean symmetry = false;
+
+    /**
+     * Rules used to skip dominated worm hole moves
      */
-    protected ArrayList<Node> list = new ArrayList<>();
+    protected EnumSet<Dominance.Rule> dominance = EnumSet.noneOf(Dominance.Rule.class);
+
+    /**
+     * Endgame database that black hole states with few cards left are looked up in, or null to search every state
+     */
+    protected Tablebase tablebase = null;
+
+    /**
+     * Milliseconds spent building the goal set before a black hole search, 0 or less for none
+     */
+    protected double goalBudget = 0;
+
+    /**
+     * States built backwards from the end of the game, which black hole states with few cards left must be in, or null
+     */
+    protected GoalSet goals = null;
+
+    // Key of the starting layout, which the dominance rules leave alone
+    private long rootKey;
+
+    /**
+     * Rule which showed the layout cannot be solved, NONE if the layout was searched
+     */
+    protected Precheck.Rule precheckRule = Precheck.Rule.NONE;
+
+    // Scratch space for sorting the moves out of a state
+    private int[] movePiles = new int[0];
+    private int[] moveScores = new int[0];
 
     /**
      * Defines whether the puzzle is the worm hole variation or not.
@@ -90,7 +175,7 @@ public class Solver {
 
     public Node getSolution() {
         if (solution != null) {
-            return new Node(new BHLayout(solution.layout()), solution.copyLog());
+            return new Node(new BHLayout(solution.layout()), solution.moves());
         }
         else return null;
     }
@@ -103,7 +188,7 @@ public class Solver {
         ArrayList<Node> solutionCopy = new ArrayList<>();
         for (int i = 0; i < solutions.size(); i++) {
             Node n = solutions.get(i);
-            solutionCopy.add(new Node(new BHLayout(n.layout()), n.copyLog()));
+            solutionCopy.add(new Node(new BHLayout(n.layout()), n.moves()));
         }
 
         return solutionCopy;
@@ -118,56 +203,293 @@ public class Solver {
         return this.nodesVisited;
     }
 
+    /**
+     * Returns the outcome of the search once the solver has been run
+     * @return status of the search
+     */
+    public Status getStatus() {
+        if (solution != null) {
+            return Status.SOLVED;
+        }
+        if (elapsedTime >= TIMEOUT) {
+            return Status.TIMEOUT;
+        }
+        return incomplete() ? Status.UNKNOWN : Status.UNSOLVABLE;
+    }
+
+    /**
+     * @return true if the search skipped states that were not shown to be dead, so it cannot prove there is no solution
+     */
+    protected boolean incomplete() {
+        return false;
+    }
+
+    public TranspositionTable getFilter() {
+        return this.filter;
+    }
+
+    /**
+     * Replaces the visited state filter with one using the given memory budget.
+     * Must be called before the solver is run.
+     * @param budget maximum size of the filter in bytes
+     * @param replacement what to do with new states once the budget is used up
+     */
+    public void setFilterBudget(long budget, TranspositionTable.Replacement replacement) {
+        this.filter = new TranspositionTable(budget, replacement);
+    }
+
+
+    /**
+     * Replaces the order in which moves are tried.
+     * Must be called before the solver is run.
+     * @param ordering
+     */
+    public void setOrdering(MoveOrdering ordering) {
+        this.ordering = ordering;
+        if (!frontier.isEmpty()) {
+            ordering.start(frontier.toList().get(BHLayout.ZERO).layout());
+        }
+    }
+
+    public MoveOrdering getOrdering() {
+        return this.ordering;
+    }
+
+    /**
+     * Turns the dead state check on or off.
+     * Must be called before the solver is run.
+     * @param prune
+     */
+    public void setPruning(boolean prune) {
+        this.pruner = prune ? new Pruner() : null;
+    }
+
+    public Pruner getPruner() {
+        return this.pruner;
+    }
+
+    /**
+     * Checks if a state is dead, when pruning is turned on
+     * @param state
+     * @return true if the state should not be expanded
+     */
+    protected boolean isDead(BHLayout state) {
+        return pruner != null && pruner.isDead(state, isWorm);
+    }
+
+    /**
+     * Turns filtering by symmetry key on or off, see BHLayout.symmetryKey.
+     * Must be called before the solver is run.
+     * @param symmetry
+     */
+    public void setSymmetry(boolean symmetry) {
+        this.symmetry = symmetry;
+    }
+
+    public boolean getSymmetry() {
+        return this.symmetry;
+    }
+
+    /**
+     * Finds the key a state is filtered by
+     * @param state
+     * @return symmetry key if filtering by symmetry, otherwise the state key
+     */
+    protected long filterKey(BHLayout state) {
+        return symmetry ? state.symmetryKey() : state.stateKey();
+    }
+
+    /**
+     * Sets the rules used to skip dominated worm hole moves, see Dominance. None are used by default.
+     * A complete search skips the solutions that only differ from another by the order of moves.
+     * Must be called before the solver is run.
+     * @param rules
+     */
+    public void setDominance(Dominance.Rule... rules) {
+        this.dominance = EnumSet.noneOf(Dominance.Rule.class);
+        this.dominance.addAll(Arrays.asList(rules));
+    }
+
+    public EnumSet<Dominance.Rule> getDominance() {
+        return EnumSet.copyOf(this.dominance);
+    }
+
+    /**
+     * Checks whether the top card of a pile may be parked
+     * @param state
+     * @param pile
+     * @return false if the park is dominated
+     */
+    protected boolean canPark(BHLayout state, int pile) {
+        return !dominance.contains(Dominance.Rule.PARK) || Dominance.uncovers(state, pile);
+    }
+
+    /**
+     * Finds the pile the worm hole card was just parked from, for the rules which limit the next move
+     * @param state
+     * @return pile, or -1 if no move is limited
+     */
+    protected int parkedFrom(BHLayout state) {
+        if (!isWorm || state.stateKey() == rootKey
+                || !(dominance.contains(Dominance.Rule.UNPARK) || dominance.contains(Dominance.Rule.FOLLOW))) {
+            return BHLayout.ERR;
+        }
+        return Dominance.parkedFrom(state);
+    }
+
+    /**
+     * Checks whether a card may be played to the hole from a pile or the worm hole
+     * @param pile pile the card comes from, -1 for the worm hole
+     * @param parked pile the worm hole card was just parked from, see parkedFrom
+     * @return false if the move is dominated
+     */
+    protected boolean canPlay(int pile, int parked) {
+        if (parked == BHLayout.ERR) {
+            return true;
+        }
+        if (pile == BHLayout.ERR) {
+            return !dominance.contains(Dominance.Rule.UNPARK) && !dominance.contains(Dominance.Rule.FOLLOW);
+        }
+        return !dominance.contains(Dominance.Rule.FOLLOW) || pile == parked;
+    }
+
+    /**
+     * Sets the endgame database that black hole states are looked up in once few enough cards are left.
+     * It is not used for worm hole games or complete searches.
+     * Must be called before the solver is run.
+     * @param tablebase the tablebase, or null to search every state
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    public Tablebase getTablebase() {
+        return this.tablebase;
+    }
+
+    /**
+     * Checks if a state is to be looked up in the tablebase instead of expanded
+     * @param state
+     * @return true if the tablebase covers the state
+     */
+    protected boolean inTablebase(BHLayout state) {
+        return tablebase != null && !isWorm && !complete && tablebase.covers(state);
+    }
+
+    /**
+     * Finishes a black hole state covered by the tablebase, only making moves to states it says can be solved
+     * @param node
+     * @return node of the solved layout, or null if the state cannot be solved
+     */
+    protected Node finish(Node node) {
+        if (isSolution(node)) {
+            return node;
+        }
+        BHLayout state = node.layout();
+        if (!tablebase.solvable(state)) {
+            return null;
+        }
+        for (int i = 0; i < state.numPiles(); i++) {
+            if (findNode(state, i)) {
+                Node newNode = createNewNode(node, i, state.topCard(i), false);
+                Node end = newNode == null ? null : finish(newNode);
+                if (end != null) {
+                    return end;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Turns the goal set on or off, see GoalSet. It is built when the black hole search starts, within its own
+     * time budget which is not counted in the elapsed time.
+     * Must be called before the solver is run.
+     * @param budget milliseconds to spend building the goal set, 0 or less to turn it off
+     */
+    public void setGoalBudget(double budget) {
+        this.goalBudget = budget;
+    }
+
+    /**
+     * @return the goal set built for the last search, or null if there was none
+     */
+    public GoalSet getGoals() {
+        return this.goals;
+    }
+
+    /**
+     * Turns the check for layouts that cannot be solved on or off.
+     * Must be called before the solver is run.
+     * @param precheck
+     */
+    public void setPrecheck(boolean precheck) {
+        this.precheck = precheck;
+    }
+
+    public Precheck.Rule getPrecheckRule() {
+        return this.precheckRule;
+    }
 
     /**
-     * Returns a copy of the nodes in the abstract search tree list
+     * Runs the precheck on the starting layout, when it is turned on.
+     * A layout which fails is finished without being searched, as unsolvable with no nodes visited.
+     * @return true if the layout cannot be solved
+     */
+    protected boolean precheckFails() {
+        if (!precheck || frontier.isEmpty()) {
+            return false;
+        }
+        double startTime = System.nanoTime();
+        precheckRule = Precheck.run(frontier.toList().get(BHLayout.ZERO).layout(), isWorm);
+        if (precheckRule == Precheck.Rule.NONE) {
+            return false;
+        }
+        elapsedTime = (System.nanoTime() - startTime) / CONVERSION;
+        hasRun = true;
+        return true;
+    }
+
+    /**
+     * Returns a copy of the nodes in the abstract search tree frontier, in the order they would be expanded
      * @return copy of nodes
      */
     public ArrayList<Node> getNodes() {
-        ArrayList<Node> copy = new ArrayList<>();
-        for (int i = 0; i < this.list.size(); i++) {
-            copy.add(this.list.get(i));
-        }
-        return copy;
+        return frontier.toList();
     }
 
 
     /**
-     * Pushes a node onto the abstract stack implemenation
-     * i.e. add to the front of the ArrayList
+     * Pushes a node onto the frontier
      * @param node
      */
     protected void push(Node node) {
-        list.add(BHLayout.ZERO, node);
+        frontier.push(node);
     }
 
 
     /**
-     * Pops an item from the 'stack'.
-     * i.e. removes the front node from the list.
+     * Pops the next node to expand from the frontier
      * @return popped node or null on failure
      */
     protected Node pop() {
-        if (list.size() >= BHLayout.ONE) {
-            Node popped = list.get(BHLayout.ZERO);
-            list.remove(BHLayout.ZERO);
-            return popped;
-        }
-        else return null;
-
+        return frontier.pop();
     }
 
 
 
     /**
      * Prints the required output once solved.
-     * Prints out 1 or 0 depending on whether the solution was solved.
+     * Prints out 1 or 0 depending on whether the solution was solved, or UNKNOWN if the search could not tell.
      * If solved, then the log of moves made is printed in the required format.
      */
     protected void print() {
         // Only if we want to be verbose
         if (!suppress) {
-            if (solution == null) {
+            if (solution == null && incomplete()) {
+                System.out.println(Status.UNKNOWN);
+            }
+            else if (solution == null) {
                 System.out.println(BHLayout.ZERO);
             } else {
                 System.out.print(BHLayout.ONE + " ");
@@ -209,11 +531,8 @@ public class Solver {
      */
     public Node createNewNode(Node node, int pile, int card, boolean setWormHole) {
 
-        // Create new log
-        ArrayList<Tuple> log;
-        Tuple tuple = setWormHole ? new Tuple(pile, -card) : new Tuple(pile, card);
-        log = node.copyLog();
-        log.add(tuple);
+        // Extend the parent's log with this move
+        MoveLog log = node.moves().append(pile, setWormHole ? -card : card);
         // Create new layout state for a worm hole game
         if (isWorm) {
             WHLayout state = (WHLayout) node.layout();
@@ -255,7 +574,15 @@ public class Solver {
      * @return has it found a solution?
      */
     protected boolean isSolution(Node node) {
-        BHLayout layout = node.layout();
+        return isSolution(node.layout());
+    }
+
+    /**
+     * Checks if a given layout is a solved state
+     * @param layout
+     * @return has it found a solution?
+     */
+    protected boolean isSolution(BHLayout layout) {
         if (isWorm) {
             WHLayout whLayout = (WHLayout) layout;
             return Checker.checkPilesEmpty(whLayout) && whLayout.wormHole() == BHLayout.ERR;
@@ -277,6 +604,73 @@ public class Solver {
         else return Checker.checkCardRank(layout, topCard);
     }
 
+    /**
+     * Sorts moves so that the move to try first comes last, ready to be pushed onto a stack in array order.
+     * Moves are given in increasing pile order and moves the ordering scores equally keep that order,
+     * so with the default ordering the highest pile is tried first as it always has been.
+     * @param state state the moves are made from
+     * @param piles piles whose top cards are moved
+     * @param from index of the first move
+     * @param to one past the index of the last move
+     */
+    protected void orderMoves(BHLayout state, int[] piles, int from, int to) {
+        if (ordering.isDefault() || to - from < BHLayout.PAIR) {
+            return;
+        }
+        if (moveScores.length < to) {
+            moveScores = new int[Math.max(to, moveScores.length * 2)];
+        }
+        for (int i = from; i < to; i++) {
+            moveScores[i] = ordering.score(state, piles[i], state.topCard(piles[i]));
+        }
+        // Stable insertion sort into increasing score, as there are only a handful of moves
+        for (int i = from + 1; i < to; i++) {
+            int pile = piles[i];
+            int score = moveScores[i];
+            int j = i - 1;
+            while (j >= from && moveScores[j] > score) {
+                piles[j + 1] = piles[j];
+                moveScores[j + 1] = moveScores[j];
+                j--;
+            }
+            piles[j + 1] = pile;
+            moveScores[j + 1] = score;
+        }
+    }
+
+    /**
+     * Pushes the children of a node moving the top card of each given pile, in the ordering's order
+     * @param node
+     * @param count number of piles in movePiles
+     * @param setWormHole are the cards moved into the worm hole
+     * @return number of children pushed
+     */
+    private int pushMoves(Node node, int count, boolean setWormHole) {
+        BHLayout state = node.layout();
+        orderMoves(state, movePiles, BHLayout.ZERO, count);
+        int pushed = 0;
+        for (int i = 0; i < count; i++) {
+            Node newNode = createNewNode(node, movePiles[i], state.topCard(movePiles[i]), setWormHole);
+            if (newNode != null) {
+                push(newNode);
+                pushed++;
+            }
+        }
+        return pushed;
+    }
+
+    /**
+     * Tells the ordering when a node that is not a solution has no children
+     * @param node
+     * @param pushed number of children pushed
+     */
+    private void checkDeadEnd(Node node, int pushed) {
+        if (pushed == BHLayout.ZERO && node.depth() > BHLayout.ZERO) {
+            MoveLog moves = node.moves();
+            ordering.deadEnd(node.layout(), moves.lastPile(), moves.lastCard());
+        }
+    }
+
     /**
      * Checks if the currently running solver has timed out
      * @return
@@ -296,62 +690,68 @@ public class Solver {
      */
     private void solveWorm() {
         double startTime = System.nanoTime();
-        // Filter set for filtering visited nodes
-        HashSet<WHLayout> filter = new HashSet<>();
-        while (list.size() != BHLayout.ZERO) {
+        while (!frontier.isEmpty()) {
             Node node = pop();
             nodesVisited++;
             WHLayout state = (WHLayout) node.layout();
-            if (!filter.contains(state)) {
-                filter.add(state);
-            } else continue;
+            // Filter visited nodes
+            if (filter.visit(filterKey(state), state.cardsLeft())) {
+                continue;
+            }
 
             // Check if this state is a solution
             if (isSolution(node)) {
                 // If not complete, return first solution
                 if (!complete) {
-                    solution = new Node(new WHLayout(node.layout()), node.copyLog());
+                    solution = new Node(new WHLayout(node.layout()), node.moves());
                     solutions.add(solution);
                     break;
                 }
                 // Add to list of solutions
                 else {
-                    solutions.add(new Node(new WHLayout(node.layout()), node.copyLog()));
+                    solutions.add(new Node(new WHLayout(node.layout()), node.moves()));
                     continue;
                 }
             }
+            // Skip states which can never be solved
+            if (isDead(state)) {
+                continue;
+            }
 
             // Expand this node
             int numPiles = state.numPiles();
-            int i, topCard;
+            int i, topCard, count = 0, pushed;
+            int parked = parkedFrom(state);
+            if (movePiles.length < numPiles) {
+                movePiles = new int[numPiles];
+            }
             for (i = 0; i < numPiles; i++) {
-                if (findNode(state, i)) {
-                    Node newNode = createNewNode(node, i, state.topCard(i), false);
-                    if (newNode != null) {
-                        push(newNode);
-                    }
+                if (findNode(state, i) && canPlay(i, parked)) {
+                    movePiles[count++] = i;
                 }
             }
+            pushed = pushMoves(node, count, false);
             // Expand this node by creating new nodes with an updated worm hole card
             if (state.topCard(BHLayout.ERR) == BHLayout.ERR) {
+                count = 0;
                 for (i = 0; i < numPiles; i++) {
                     topCard = state.topCard(i);
-                    if (topCard != BHLayout.ERR) {
-                        Node newNode = createNewNode(node, i, topCard, true);
-                        if (newNode != null) {
-                            push(newNode);
-                        }
+                    if (topCard != BHLayout.ERR && canPark(state, i)) {
+                        movePiles[count++] = i;
                     }
                 }
+                pushed += pushMoves(node, count, true);
             }
             // Retrieve a new state by attempting to move the worm hole card to the hole card
-            else if (findNode(state, BHLayout.ERR)) {
+            else if (canPlay(BHLayout.ERR, parked) && findNode(state, BHLayout.ERR)) {
                 topCard = state.topCard(BHLayout.ERR);
                 Node newNode = createNewNode(node, BHLayout.ERR, topCard, false);
                 if (newNode != null) {
                     push(newNode);
+                    pushed++;
                 }
             }
+            checkDeadEnd(node, pushed);
             elapsedTime = (System.nanoTime() - startTime) / CONVERSION;
             if (checkTimeOut()) {
 
@@ -374,43 +774,65 @@ public class Solver {
      * See here for the basic algorithm structure: https://studres.cs.st-andrews.ac.uk/CS3105/Lectures/CS3105-L02-Search-1.pdf
      */
     private void solve() {
+        if (goalBudget > 0 && !frontier.isEmpty()) {
+            goals = new GoalSet(frontier.toList().get(BHLayout.ZERO).layout(), goalBudget);
+        }
         double startTime = System.nanoTime();
-        HashSet<BHLayout> filter = new HashSet<>();
-        // Loop until we no longer have any nodes in the list
-        while (list.size() != BHLayout.ZERO) {
+        // Loop until we no longer have any nodes in the frontier
+        while (!frontier.isEmpty()) {
             Node node = pop();
             nodesVisited++;
             // See if we can filter this node
-            if (!filter.contains(node.layout())) {
-                filter.add(node.layout());
-            } else {
+            if (filter.visit(filterKey(node.layout()), node.layout().cardsLeft())) {
                 continue;
             }
 
             // Check if we have found the solution
             BHLayout state = node.layout();
-            if (isSolution(node)) {
+            boolean solved = isSolution(node);
+            if (solved) {
                 if (complete) {
-                    solution = new Node(new BHLayout(node.layout()), node.copyLog());
+                    solution = new Node(new BHLayout(node.layout()), node.moves());
                     solutions.add(solution);
                 }
                 else {
-                    solution = new Node(new BHLayout(node.layout()), node.copyLog());
+                    solution = new Node(new BHLayout(node.layout()), node.moves());
                     break;
                 }
             }
+            // Look states with few enough cards left up instead of searching below them
+            if (inTablebase(state)) {
+                Node end = finish(node);
+                if (end != null) {
+                    solution = new Node(new BHLayout(end.layout()), end.moves());
+                    break;
+                }
+                continue;
+            }
+            // Skip states which cannot reach the end of the game
+            if (goals != null && !goals.reaches(state)) {
+                continue;
+            }
+            // Skip states which can never be solved
+            if (isDead(state)) {
+                continue;
+            }
 
-            // Expand the node by pushing new nodes to the front of the list
+            // Expand the node by pushing new nodes onto the frontier, in the ordering's order
             int numPiles = state.numPiles();
-            int i;
+            int i, count = 0;
+            if (movePiles.length < numPiles) {
+                movePiles = new int[numPiles];
+            }
             for (i = 0; i < numPiles; i++) {
                 if (findNode(state, i)) {
-                    Node newNode = createNewNode(node, i, state.topCard(i), false);
-                    if (newNode != null) {
-                        push(newNode);
-                    }
+                    movePiles[count++] = i;
                 }
             }
+            int pushed = pushMoves(node, count, false);
+            if (!solved) {
+                checkDeadEnd(node, pushed);
+            }
             elapsedTime = (System.nanoTime() - startTime) / CONVERSION;
             if (checkTimeOut()) {
 
@@ -423,19 +845,42 @@ public class Solver {
         hasRun = true;
     }
 
+    /**
+     * Solves the layout with the search for its patience variation
+     */
+    private void solveVariant() {
+        if (isWorm) {
+            solveWorm();
+        } else {
+            solve();
+        }
+    }
+
+    /**
+     * Runs the solver dependent on the patience variation, letting any failure reach the caller instead of
+     * exiting, so that a batch of layouts can report one failing layout and carry on.
+     * Always uses the search of this class, even on a subclass with its own run.
+     * @return true if a solution was found
+     * @throws OutOfMemoryError if the frontier grows too large
+     */
+    public boolean runOrThrow() {
+        if (!hasRun && !precheckFails()) {
+            solveVariant();
+        }
+        print();
+
+        return solution != null;
+    }
+
     /**
      * Runs the solver dependent on the patience variation.
      */
     public boolean run() {
-        if (!hasRun) {
+        if (!hasRun && !precheckFails()) {
             try {
-                if (isWorm) {
-                    solveWorm();
-                } else {
-                    solve();
-                }
+                solveVariant();
             }
-            // Space complexity has lead to the list being so large we run out of memory
+            // Space complexity has lead to the frontier being so large we run out of memory
             catch(OutOfMemoryError oe) {
                 System.err.println("Program out of memory. Exiting ... ");
                 System.exit(BHLayout.ERR);
@@ -454,12 +899,27 @@ public class Solver {
     }
 
     public Solver(BHLayout layout, boolean isWorm, boolean complete, boolean suppress, boolean time, boolean nodes){
+        this(layout, isWorm, complete, suppress, time, nodes, new StackFrontier());
+    }
+
+    /**
+     * @param layout puzzle layout
+     * @param isWorm are we solving a worm hole variation ?
+     * @param complete search for every solution
+     * @param suppress suppress stdout output
+     * @param time print the time taken
+     * @param nodes print the number of nodes visited
+     * @param frontier structure holding the nodes still to be expanded, which decides the search order
+     */
+    public Solver(BHLayout layout, boolean isWorm, boolean complete, boolean suppress, boolean time, boolean nodes, Frontier frontier){
+        this.frontier = frontier;
         this.isWorm = isWorm;
         this.complete = complete;
         this.suppress = suppress;
         this.time = time;
         this.displayNodeCount = nodes;
         Node node = new Node(layout);
+        this.rootKey = layout.stateKey();
         // Add to the start of the list
         push(node);
     }
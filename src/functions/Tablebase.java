@@ -0,0 +1,287 @@
+package functions;
+
+import layouts.BHLayout;
+import layouts.Zobrist;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+
+/**
+ * Endgame database of every black hole position with a few cards left that can be solved.
+ *
+ * Moves only depend on ranks, so a position is keyed by the rank of the hole card and the ranks left in each
+ * pile, bottom first, with the piles added together so their order does not matter. The database is built
+ * backwards from the positions with every pile empty: undoing a move puts the hole card back on top of a pile,
+ * or on an empty pile, and makes a card of an adjacent rank the hole card. Every position built this way with
+ * no more of a rank than there are suits is solvable, and every solvable position is built, so a position the
+ * database covers is solvable exactly when its key is found.
+ *
+ * The file holds a header followed by the keys in increasing order, and is memory-mapped and binary searched.
+ */
+public class Tablebase {
+
+    /**
+     * System property naming the tablebase file used by BHMain
+     */
+    public static final String PROPERTY = "bh.tablebase";
+
+    /**
+     * Default number of cards left in the largest positions stored
+     */
+    public static final int DEFAULT_CARDS = 6;
+
+    // Identifies a tablebase file, and the version of its layout
+    private static final int MAGIC = 0x42485442;
+    private static final int FORMAT = 1;
+
+    // Header: magic, format, ranks, suits, cards, number of keys
+    private static final int HEADER_BYTES = 24;
+
+    private final int numRanks;
+
+    private final int numSuits;
+
+    private final int cards;
+
+    // Keys of the solvable positions, in increasing order
+    private final LongBuffer keys;
+
+
+    // Getters
+    public int numRanks() {
+        return numRanks;
+    }
+
+    public int numSuits() {
+        return numSuits;
+    }
+
+    /**
+     * @return largest number of cards left in a position stored
+     */
+    public int cards() {
+        return cards;
+    }
+
+    /**
+     * @return number of solvable positions stored
+     */
+    public int size() {
+        return keys.limit();
+    }
+
+    /**
+     * Opens the tablebase named by the bh.tablebase system property
+     * @return the tablebase, or null if the property is not set or the file cannot be used
+     */
+    public static Tablebase fromProperty() {
+        String path = System.getProperty(PROPERTY);
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        try {
+            return new Tablebase(new File(path));
+        }
+        catch (IOException e) {
+            System.err.println("Tablebase unavailable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Finds the key of the ranks left in a pile, the same whatever deal or pile they are in
+     * @param ranks ranks of the pile, bottom first
+     * @param height number of cards left
+     * @return key of the pile, 0 if it is empty
+     */
+    private static long pileKey(int[] ranks, int height) {
+        if (height == BHLayout.ZERO) {
+            return 0L;
+        }
+        long hash = 0L;
+        for (int i = 0; i < height; i++) {
+            hash ^= Zobrist.rank(i, ranks[i]);
+        }
+        return Zobrist.mix(hash);
+    }
+
+    /**
+     * Finds the key of a black hole state
+     * @param state
+     * @return key of the hole rank and the ranks left in the piles
+     */
+    public static long key(BHLayout state) {
+        long piles = 0L;
+        int[] ranks = new int[BHLayout.PAIR];
+        for (int p = 0; p < state.numPiles(); p++) {
+            int height = state.pileSize(p);
+            if (ranks.length < height) {
+                ranks = new int[height];
+            }
+            for (int i = 0; i < height; i++) {
+                ranks[i] = state.getCardRank(state.cardAt(p, i));
+            }
+            piles += pileKey(ranks, height);
+        }
+        return piles ^ Zobrist.hole(state.getCardRank(state.holeCard()));
+    }
+
+    /**
+     * @param hole rank of the hole card
+     * @param piles ranks left in each pile, bottom first
+     * @return key of the position
+     */
+    private static long key(int hole, int[][] piles) {
+        long sum = 0L;
+        for (int[] pile : piles) {
+            sum += pileKey(pile, pile.length);
+        }
+        return sum ^ Zobrist.hole(hole);
+    }
+
+    /**
+     * Checks whether a state is small enough to be in the tablebase
+     * @param state a black hole state
+     * @return true if the tablebase says whether it can be solved
+     */
+    public boolean covers(BHLayout state) {
+        return state.cardsLeft() <= cards && state.numRanks() == numRanks && state.numSuits() <= numSuits;
+    }
+
+    /**
+     * Looks a state up, which must be covered by the tablebase
+     * @param state
+     * @return true if the state can be solved
+     */
+    public boolean solvable(BHLayout state) {
+        long key = key(state);
+        int low = 0;
+        int high = keys.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long found = keys.get(mid);
+            if (found < key) {
+                low = mid + 1;
+            }
+            else if (found > key) {
+                high = mid - 1;
+            }
+            else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds every solvable position up to a number of cards and writes their keys to a file
+     * @param file
+     * @param cards largest number of cards left in a position stored
+     * @param ranks
+     * @param suits
+     * @return number of positions written
+     * @throws IOException if the file cannot be written
+     */
+    public static int generate(File file, int cards, int ranks, int suits) throws IOException {
+        if (cards < BHLayout.ZERO || ranks < BHLayout.ONE || suits < BHLayout.ONE) {
+            throw new IllegalArgumentException("Tablebase needs cards >= 0 and at least one rank and suit");
+        }
+        HashSet<Long> seen = new HashSet<>();
+        // Positions with n cards left, as their piles and the rank of their hole card
+        ArrayList<int[][]> level = new ArrayList<>();
+        ArrayList<Integer> holes = new ArrayList<>();
+        for (int hole = 1; hole <= ranks; hole++) {
+            seen.add(key(hole, new int[0][]));
+            level.add(new int[0][]);
+            holes.add(hole);
+        }
+        int[] counts = new int[ranks + 1];
+        for (int n = 1; n <= cards; n++) {
+            ArrayList<int[][]> next = new ArrayList<>();
+            ArrayList<Integer> nextHoles = new ArrayList<>();
+            for (int k = 0; k < level.size(); k++) {
+                int[][] piles = level.get(k);
+                int hole = holes.get(k);
+                Arrays.fill(counts, BHLayout.ZERO);
+                for (int[] pile : piles) {
+                    for (int rank : pile) {
+                        counts[rank]++;
+                    }
+                }
+                counts[hole]++;
+                int up = hole == ranks ? BHLayout.ONE : hole + 1;
+                int down = hole == BHLayout.ONE ? ranks : hole - 1;
+                for (int previous : up == down ? new int[] {up} : new int[] {up, down}) {
+                    // The new hole card must be another card of its rank
+                    if (previous == hole || counts[previous] >= suits) {
+                        continue;
+                    }
+                    // Put the hole card back on each pile in turn, and on an empty pile
+                    for (int p = 0; p <= piles.length; p++) {
+                        int[][] undone = Arrays.copyOf(piles, p == piles.length ? piles.length + 1 : piles.length);
+                        int[] pile = p == piles.length ? new int[0] : piles[p];
+                        undone[p] = Arrays.copyOf(pile, pile.length + 1);
+                        undone[p][pile.length] = hole;
+                        if (seen.add(key(previous, undone))) {
+                            next.add(undone);
+                            nextHoles.add(previous);
+                        }
+                    }
+                }
+            }
+            level = next;
+            holes = nextHoles;
+        }
+
+        long[] sorted = new long[seen.size()];
+        int i = 0;
+        for (long key : seen) {
+            sorted[i++] = key;
+        }
+        Arrays.sort(sorted);
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(0);
+            long size = HEADER_BYTES + (long) sorted.length * Long.BYTES;
+            MappedByteBuffer buffer = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(FORMAT).putInt(ranks).putInt(suits).putInt(cards).putInt(sorted.length);
+            buffer.asLongBuffer().put(sorted);
+            buffer.force();
+        }
+        return sorted.length;
+    }
+
+
+    /**
+     * Opens a tablebase file
+     * @param file
+     * @throws IOException if the file cannot be read or is not a tablebase
+     */
+    public Tablebase(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            long size = in.length();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a tablebase: " + file);
+            }
+            MappedByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                throw new IOException("Not a tablebase: " + file);
+            }
+            this.numRanks = buffer.getInt();
+            this.numSuits = buffer.getInt();
+            this.cards = buffer.getInt();
+            int count = buffer.getInt();
+            if (count < BHLayout.ZERO || size != HEADER_BYTES + (long) count * Long.BYTES) {
+                throw new IOException("Tablebase is truncated: " + file);
+            }
+            this.keys = buffer.asLongBuffer();
+        }
+    }
+}
@@ -49,7 +49,7 @@ public class Writer {
         File dir = new File(".." + File.separator + "results" + File.separator + part + File.separator + variant + File.separator + String.valueOf(subDir));
 
 
-        if (dir.exists() || dir.mkdir()) {
+        if (dir.exists() || dir.mkdirs()) {
 
 
             String fileName = dir + File.separator + timeStamp();
@@ -1,7 +1,8 @@
 package layouts;
 
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Objects;
 import java.util.Random ;
 import java.util.Iterator ;
 
@@ -33,8 +34,23 @@ public class BHLayout {
     protected int numpiles;
 
 
-    // 2-D array layout
-    protected ArrayList<ArrayList<Integer>> layout;
+    // Default number of piles used when a layout is given an invalid pile count
+    public static final int DEFAULT_PILES = 17;
+
+    // Cards as they were dealt, shared between every copy of this layout
+    protected Deal deal;
+
+    // Rank of every card in the deck, shared between every copy of this layout
+    protected Ranks ranks;
+
+    // Number of cards still left on each pile
+    protected int[] heights;
+
+    // 64-bit Zobrist key of the current state, kept up to date on every move
+    protected long key;
+
+    // Number of cards still left on the piles
+    protected int cardsLeft;
 
     // Getters
     public int holeCard() {
@@ -52,8 +68,14 @@ public class BHLayout {
     public int cardsInDeck() {
         return numranks * numsuits;
     }
+    public long stateKey() {
+        return key;
+    }
+    public int cardsLeft() {
+        return cardsLeft;
+    }
     public int pileSize(int i) {
-        return layout.get(i).size();
+        return heights[i];
     }
 
     /**
@@ -66,8 +88,20 @@ public class BHLayout {
         if(pile >= numPiles() || position >= pileSize(pile)) {
             return -1; }
         else {
-            return layout.get(pile).get(position);
+            return deal.cardAt(pile, position);
+        }
+    }
+
+    /**
+     * Retrieve the card most recently removed from a given pile, the card dealt just above its top card
+     * @param pile
+     * @return integer value of card, or -1 if nothing has been removed from the pile
+     */
+    public int lastRemoved(int pile) {
+        if (pile < ZERO || pile >= numPiles() || pileSize(pile) >= deal.pileSize(pile)) {
+            return ERR;
         }
+        return deal.cardAt(pile, pileSize(pile));
     }
 
     /**
@@ -76,10 +110,10 @@ public class BHLayout {
      * @return integer value of card
      */
     public int topCard(int pile) {
-        if(pile >= numPiles() || pileSize(pile)<1) {
+        if(pile < ZERO || pile >= numPiles() || pileSize(pile)<1) {
             return -1; }
         else {
-            return layout.get(pile).get(pileSize(pile)-1);
+            return deal.cardAt(pile, pileSize(pile)-1);
         }
     }
 
@@ -92,6 +126,7 @@ public class BHLayout {
         if (holecard < ONE) {
             return ERR;
         }
+        key ^= Zobrist.hole(this.holecard) ^ Zobrist.hole(holecard);
         this.holecard = holecard;
         return ONE;
     }
@@ -102,25 +137,53 @@ public class BHLayout {
      * @return success or failure
      */
     public int getCardRank(int card) {
-        // Card must be in the deck and not negative
-        if (card <= cardsInDeck() && card > ZERO) {
-            int suit = 1;
-            // Loop through the suits
-            while (suit <= numsuits) {
-                // Minimum card number for this suit
-                int min = ((cardsInDeck() / numsuits) * (suit - 1));
-                // Maximum card number for this suit
-                int max = (cardsInDeck() / numsuits) * suit;
-                // Does the card appear in this bound ?
-                if (card >= min && card <= max) {
-                    return card - min;
-                }
-                suit++;
-            }
-        }
+        // Looked up in the table built when the layout was created
+        return ranks.rank(card);
+    }
+
+    /**
+     * Retrieve the suit of a given card
+     * @param card
+     * @return suit of the card or -1 if it is not in the deck
+     */
+    public int getCardSuit(int card) {
+        return ranks.suit(card);
+    }
+
+    /**
+     * Checks whether two cards have adjacent ranks (or circular in the deck)
+     * @param card
+     * @param other
+     * @return true or false
+     */
+    public boolean isAdjacent(int card, int other) {
+        return ranks.adjacent(card, other);
+    }
+
+    /**
+     * @param rank
+     * @return the rank above, wrapping from the highest rank to the lowest
+     */
+    public int rankAbove(int rank) {
+        return ranks.up(rank);
+    }
+
+    /**
+     * @param rank
+     * @return the rank below, wrapping from the lowest rank to the highest
+     */
+    public int rankBelow(int rank) {
+        return ranks.down(rank);
+    }
 
-        // Return error if we can't find the card
-        return ERR;
+    /**
+     * Counts the cards of ranks adjacent to a card's rank, not counting the card itself
+     * @param card a card in the deck which is included in counts
+     * @param counts cards of each rank, indexed by rank
+     * @return number of adjacent cards
+     */
+    public int adjacentCount(int card, int[] counts) {
+        return ranks.adjacentCount(ranks.rank(card), counts);
     }
 
     /**
@@ -130,14 +193,45 @@ public class BHLayout {
      */
     public int removeTopCard(int pile) {
         // Pile must be valid
-        if(pile >= numPiles() || pileSize(pile)<1) {
+        if(pile < ZERO || pile >= numPiles() || pileSize(pile)<1) {
+            return ERR; }
+        else {
+            key ^= Zobrist.pile(pile, topCard(pile));
+            heights[pile]--;
+            cardsLeft--;
+            key ^= Zobrist.pile(pile, topCard(pile));
+            return ONE;
+        }
+    }
+
+    /**
+     * Puts the last card removed from a given pile back on top, undoing removeTopCard
+     * @param pile
+     * @return success or failure
+     */
+    public int restoreTopCard(int pile) {
+        // Pile must be valid and have a card above its current top
+        if(pile < ZERO || pile >= numPiles() || pileSize(pile) >= deal.pileSize(pile)) {
             return ERR; }
         else {
-            layout.get(pile).remove(pileSize(pile) - 1);
+            key ^= Zobrist.pile(pile, topCard(pile));
+            heights[pile]++;
+            cardsLeft++;
+            key ^= Zobrist.pile(pile, topCard(pile));
             return ONE;
         }
     }
 
+    /**
+     * Puts back a previous hole card, undoing setHole.
+     * Unlike setHole the card is not checked, as it was the hole card before.
+     * @param holecard
+     */
+    public void restoreHole(int holecard) {
+        key ^= Zobrist.hole(this.holecard) ^ Zobrist.hole(holecard);
+        this.holecard = holecard;
+    }
+
     /**
      * Overidden equals method for comparing layout objects.
      * @param o
@@ -150,6 +244,10 @@ public class BHLayout {
         }
         // Check properties of both layouts including top cards
         BHLayout layout = (BHLayout) o;
+        // Layouts of the same type with different keys can never be equal
+        if (layout.getClass() == this.getClass() && layout.stateKey() != this.key) {
+            return false;
+        }
         boolean equals;
         equals = layout.numRanks() == this.numranks;
         equals = equals && layout.numSuits() == this.numsuits;
@@ -168,24 +266,58 @@ public class BHLayout {
 
     /**
      * Overridden hash code function for this class
+     * Folds the Zobrist key, so it costs the same whatever the size of the deck
      * @return hash code
      */
     @Override
     public int hashCode() {
-        return Objects.hash(holecard, numranks, numsuits, numpiles, layout);
+        return (int) (key ^ (key >>> 32));
+    }
+
+    /**
+     * Computes the Zobrist key of this layout from scratch.
+     * Used when a layout is created, after which the key is updated move by move.
+     * @return 64-bit key
+     */
+    protected long computeKey() {
+        long hash = Zobrist.deck(numranks, numsuits, numpiles) ^ Zobrist.hole(holecard);
+        for (int i = 0; i < numpiles; i++) {
+            hash ^= Zobrist.pile(i, topCard(i));
+        }
+        return hash;
     }
 
 
-    protected ArrayList<ArrayList<Integer>> copyLayout() {
-        ArrayList<ArrayList<Integer>> copy = new  ArrayList<ArrayList<Integer>>(0);
-        for(int i=0;i<numPiles();i++) {
-            ArrayList<Integer> newpile = new ArrayList<Integer>(0);
-            for(int j=0;j<pileSize(i);j++){
-                newpile.add(j,cardAt(i,j));
-            }
-            copy.add(newpile);
+    /**
+     * Computes a key shared by every state of this deal that plays out the same way.
+     * Moves only depend on ranks, so the key is made from the rank of the hole card and the ranks left in
+     * each pile, in order. The piles are added together so that the order of the piles does not matter either.
+     * Unlike stateKey it is worked out from scratch, in time that grows with the number of piles.
+     * @return 64-bit key
+     */
+    public long symmetryKey() {
+        long piles = 0L;
+        for (int i = 0; i < numpiles; i++) {
+            piles += Zobrist.mix(deal.rankPrefix(ranks, i, pileSize(i)));
         }
-        return copy;
+        return piles ^ Zobrist.deck(numranks, numsuits, numpiles) ^ Zobrist.hole(getCardRank(holecard));
+    }
+
+    /**
+     * Copies the state of another layout into this one.
+     * The deal is shared as it never changes, so only the pile heights are copied.
+     * @param old
+     */
+    protected void copyState(BHLayout old) {
+        this.holecard = old.holeCard();
+        this.numranks = old.numRanks();
+        this.numsuits = old.numSuits();
+        this.numpiles = old.numPiles();
+        this.deal = old.deal;
+        this.ranks = old.ranks;
+        this.heights = old.heights.clone();
+        this.key = old.stateKey();
+        this.cardsLeft = old.cardsLeft;
     }
 
     // deal out all cards except Ace of Spades (1)
@@ -196,8 +328,42 @@ public class BHLayout {
 
     public void randomise (int seed, int numInLayout)   {
         int maxindex = cardsInDeck()-1;
+        int[] dealt = new int[dealtCards(numInLayout, cardsInDeck())];
+        int[] offsets = new int[numPiles() + 1];
+        deal(new Random(seed), cardsInDeck(), numInLayout, numPiles(), new int[maxindex], dealt, offsets);
+
+        deal = new Deal(dealt, offsets);
+        heights = deal.fullHeights();
+        cardsLeft = deal.numCards();
+
+        holecard = 1;
+        key = computeKey();
+    }
+
+    /**
+     * Number of cards randomise deals from a deck, never more than are available after the hole card
+     * @param numInLayout cards asked for
+     * @param deckSize cards in the deck
+     * @return cards dealt to the piles
+     */
+    public static int dealtCards(int numInLayout, int deckSize) {
+        return Math.max(Math.min(numInLayout, deckSize - 1), ZERO);
+    }
+
+    /**
+     * Shuffles a deck without the Ace of Spades and deals it round the piles, into arrays given by the caller
+     * so that they can be reused. This is the deal of randomise, which GENBATCH also uses.
+     * @param random generator seeded with the seed of the deal
+     * @param deckSize cards in the deck
+     * @param numInLayout cards to deal, see dealtCards
+     * @param piles number of piles
+     * @param cards at least deckSize-1 entries, overwritten with the shuffled deck
+     * @param dealt at least dealtCards entries, filled with the cards of each pile bottom first
+     * @param offsets at least piles+1 entries, filled with the start of each pile in dealt and then its size
+     */
+    public static void deal(Random random, int deckSize, int numInLayout, int piles, int[] cards, int[] dealt, int[] offsets) {
+        int maxindex = deckSize-1;
 
-        int[] cards = new int[maxindex] ;
         for (int i = 0; i < maxindex; i++) {
             cards[i] = i+2 ;
         }
@@ -206,8 +372,6 @@ public class BHLayout {
         // Choose the sequence uniformly at random
         // NB random.nextInt(k) gives a value in range 0..k-1
 
-        Random random = new Random(seed) ;
-
         for (int i = 0; i < maxindex-1; i++) {
             int temp = cards[i] ;
             int index = i+random.nextInt(maxindex-i) ;
@@ -215,35 +379,40 @@ public class BHLayout {
             cards[index] = temp ;
         }
 
-        // Now empty the piles
-        //
-        for (int i = 0; i < numPiles() ; i++) {
-            layout.get(i).clear();
-        }
-
         // Now put the right number of cards on the layout
         // For safety don't allow more cards than are available
+        // Cards are dealt round the piles in turn, so pile p gets cards p, p+numPiles, ...
 
-        int remaining=Math.min(numInLayout,maxindex);
-
-        int nextpile = 0;
+        int remaining = dealtCards(numInLayout, deckSize);
+        int next = 0;
 
-        for (int i = 0; i < remaining ; i++) {
-            layout.get(nextpile).add(cards[i]);
-            nextpile = (nextpile+1) % numPiles();
+        for (int pile = 0; pile < piles ; pile++) {
+            offsets[pile] = next;
+            for (int i = pile; i < remaining; i += piles) {
+                dealt[next++] = cards[i];
+            }
         }
-
-        holecard = 1;
+        offsets[piles] = next;
     }
 
     public void print() {
-        System.out.println(numRanks() + " " + numSuits() + " " + numPiles());
-        System.out.println(holeCard());
+        print(System.out);
+    }
+
+    /**
+     * Prints the layout in the text format read by BHLayout(ArrayList) and LayoutParser
+     * @param out
+     */
+    public void print(PrintStream out) {
+        out.println(numRanks() + " " + numSuits() + " " + numPiles());
+        out.println(holeCard());
+        StringBuilder line = new StringBuilder();
         for (int i=0; i < numPiles() ; i++) {
+            line.setLength(0);
             for(int j=0; j < pileSize(i) ; j++) {
-                System.out.print(layout.get(i).get(j)+" ");
+                line.append(cardAt(i, j)).append(' ');
             }
-            System.out.println("-1");
+            out.println(line.append("-1"));
         }
     }
 
@@ -251,19 +420,15 @@ public class BHLayout {
     // Helper function for constructors
     //
     protected void createLayout() {
-        try {
-            this.layout = new ArrayList<>(numpiles);
-        }
         // Added during testing due input of a negative value for numpiles
-        catch (IllegalArgumentException ie) {
+        if (numpiles < ZERO) {
             // Defaults to 17
-            this.layout = new ArrayList<>(17);
-            numpiles = 17;
-        }
-        for(int i=0; i < numpiles; i++) {
-            layout.add(i,new ArrayList<Integer>(0));
+            numpiles = DEFAULT_PILES;
         }
-
+        this.deal = Deal.empty(numpiles);
+        this.ranks = new Ranks(numranks, numsuits);
+        this.heights = deal.fullHeights();
+        this.cardsLeft = ZERO;
     }
 
     //
@@ -290,6 +455,7 @@ public class BHLayout {
         this.numpiles = piles;
         this.numsuits = suits;
         createLayout();
+        this.key = computeKey();
     }
 
 
@@ -306,29 +472,61 @@ public class BHLayout {
         this.numpiles = p;
         createLayout();
         this.holecard = h;
+        // Pack the piles straight into primitive arrays
+        int[] cards = new int[Math.max(integers.size() - 4, ZERO)];
+        int[] offsets = new int[numpiles + 1];
+        int size = 0;
         int nextpile = 0;
         while( reader.hasNext() && (nextpile < numpiles) ) {
             int card = reader.next();
             if (card == -1) {
                 nextpile++;
+                offsets[nextpile] = size;
             }
             else {
-                layout.get(nextpile).add(card);
+                cards[size++] = card;
             }
         }
+        // Any piles that were never closed are empty
+        while (nextpile < numpiles) {
+            nextpile++;
+            offsets[nextpile] = size;
+        }
+        this.deal = new Deal(cards, offsets);
+        this.heights = deal.fullHeights();
+        this.cardsLeft = deal.numCards();
+        this.key = computeKey();
+    }
+
+    // Create layout from a deal that has already been read, see LayoutParser
+    //
+    BHLayout(int ranks, int suits, int hole, Deal deal) {
+        this.numranks = ranks;
+        this.numsuits = suits;
+        this.numpiles = deal.numPiles();
+        this.holecard = hole;
+        this.deal = deal;
+        this.ranks = new Ranks(ranks, suits);
+        this.heights = deal.fullHeights();
+        this.cardsLeft = deal.numCards();
+        this.key = computeKey();
+    }
+
+    // Create layout from a binary layout, reading the cards in place, see BinaryLayout
+    //
+    public BHLayout(ByteBuffer buffer) {
+        this(BinaryLayout.field(buffer, BinaryLayout.RANKS), BinaryLayout.field(buffer, BinaryLayout.SUITS),
+                BinaryLayout.field(buffer, BinaryLayout.HOLE), BinaryLayout.deal(buffer));
     }
 
     // Copy Constructor
     //
 
     public BHLayout(BHLayout old) {
-        this.holecard = old.holeCard();
-        this.numranks = old.numRanks();
-        this.numsuits = old.numSuits();
-        this.numpiles = old.numPiles();
-        this.layout = old.copyLayout();
+        copyState(old);
     }
 
+
 }
 
 
@@ -0,0 +1,236 @@
+package layouts;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+
+/**
+ * Binary format for layouts, which can be read in place from a memory-mapped file however large the deck.
+ *
+ * Every value is a big-endian int. The header holds a magic number, the format version, the ranks, suits,
+ * number of piles and hole card, followed by the start of each pile and the total number of cards as in Deal.
+ * The cards of every pile follow, bottom first, with nothing between the piles. A layout read from a buffer
+ * keeps reading its cards from the buffer, so only the pile offsets are copied. A file may hold several
+ * layouts one after another, as written by GENBATCH.
+ */
+public final class BinaryLayout {
+
+    /**
+     * First int of every binary layout, "BHLY"
+     */
+    public static final int MAGIC = 0x42484C59;
+
+    /**
+     * Version of the format
+     */
+    public static final int FORMAT = 1;
+
+    // Positions of the header fields, in ints
+    static final int RANKS = 2;
+    static final int SUITS = 3;
+    static final int PILES = 4;
+    static final int HOLE = 5;
+    private static final int OFFSETS = 6;
+
+    /**
+     * Reads a header field, checking the buffer holds a binary layout
+     * @param buffer
+     * @param field position of the field in ints
+     * @return value of the field
+     * @throws IllegalArgumentException if the buffer does not start with a binary layout header
+     */
+    static int field(ByteBuffer buffer, int field) {
+        if (buffer.limit() < OFFSETS * Integer.BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a binary layout");
+        }
+        if (buffer.getInt(Integer.BYTES) != FORMAT) {
+            throw new IllegalArgumentException("Unknown binary layout version " + buffer.getInt(Integer.BYTES));
+        }
+        return buffer.getInt(field * Integer.BYTES);
+    }
+
+    /**
+     * Builds the deal of a binary layout, reading its cards in place
+     * @param buffer
+     * @return a new deal backed by the buffer
+     * @throws IllegalArgumentException if the pile offsets do not match the size of the buffer
+     */
+    static Deal deal(ByteBuffer buffer) {
+        int piles = field(buffer, PILES);
+        long header = (long) OFFSETS + piles + 1;
+        if (piles < BHLayout.ZERO || header * Integer.BYTES > buffer.limit()) {
+            throw new IllegalArgumentException("Binary layout is truncated");
+        }
+        int[] offsets = new int[piles + 1];
+        for (int i = 0; i <= piles; i++) {
+            offsets[i] = buffer.getInt((OFFSETS + i) * Integer.BYTES);
+            if (i == 0 ? offsets[i] != BHLayout.ZERO : offsets[i] < offsets[i - 1]) {
+                throw new IllegalArgumentException("Binary layout has a bad offset for pile " + i);
+            }
+        }
+        if ((header + offsets[piles]) * Integer.BYTES != buffer.limit()) {
+            throw new IllegalArgumentException("Binary layout holds " + buffer.limit() + " bytes, not "
+                    + (header + offsets[piles]) * Integer.BYTES);
+        }
+        ByteBuffer cards = buffer.duplicate();
+        cards.position((int) header * Integer.BYTES);
+        return new Deal(cards.slice().asIntBuffer(), offsets);
+    }
+
+    /**
+     * Number of bytes a layout takes in the binary format
+     * @param piles
+     * @param cards total number of cards in the piles
+     * @return size in bytes
+     */
+    public static long size(int piles, long cards) {
+        return ((long) OFFSETS + piles + 1 + cards) * Integer.BYTES;
+    }
+
+    /**
+     * Number of bytes taken by the layout at the position of a buffer
+     * @param buffer
+     * @return size in bytes, which may run past the end of the buffer
+     * @throws IllegalArgumentException if the buffer does not hold a binary layout header at its position
+     */
+    static long length(ByteBuffer buffer) {
+        ByteBuffer header = buffer.slice();
+        int piles = field(header, PILES);
+        if (piles < BHLayout.ZERO || size(piles, 0) > header.limit()) {
+            throw new IllegalArgumentException("Binary layout is truncated");
+        }
+        return size(piles, header.getInt((OFFSETS + piles) * Integer.BYTES));
+    }
+
+    /**
+     * Writes a layout in the binary format at the position of a buffer
+     * @param buffer buffer with at least size(piles, offsets[piles]) bytes remaining
+     * @param ranks
+     * @param suits
+     * @param hole
+     * @param cards cards of every pile, bottom first, with nothing between the piles
+     * @param offsets start of each pile in cards followed by the total number of cards, as in Deal
+     * @param piles number of piles
+     */
+    public static void put(ByteBuffer buffer, int ranks, int suits, int hole, int[] cards, int[] offsets, int piles) {
+        buffer.putInt(MAGIC).putInt(FORMAT);
+        buffer.putInt(ranks).putInt(suits).putInt(piles).putInt(hole);
+        for (int i = 0; i <= piles; i++) {
+            buffer.putInt(offsets[i]);
+        }
+        for (int i = 0; i < offsets[piles]; i++) {
+            buffer.putInt(cards[i]);
+        }
+    }
+
+    /**
+     * Checks whether a file holds a binary layout
+     * @param file
+     * @return true if the file starts with the magic number
+     */
+    public static boolean isBinary(File file) {
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] start = new byte[Integer.BYTES];
+            return in.read(start) == Integer.BYTES && ByteBuffer.wrap(start).getInt() == MAGIC;
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Maps a binary layout file and reads the layout in place
+     * @param file
+     * @return a new layout whose cards are read from the file
+     * @throws IOException if the file cannot be read or is not a binary layout
+     */
+    public static BHLayout read(File file) throws IOException {
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Binary layout is too large: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new BHLayout(buffer);
+        }
+        catch (IllegalArgumentException e) {
+            throw new IOException(file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Maps a file of binary layouts written one after another and reads each in place
+     * @param file
+     * @return list of layouts in the order they appear
+     * @throws IOException if the file cannot be read or does not hold binary layouts
+     */
+    public static ArrayList<BHLayout> readAll(File file) throws IOException {
+        ArrayList<BHLayout> layouts = new ArrayList<>();
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Binary layout is too large: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.hasRemaining()) {
+                long length = length(buffer);
+                if (length > buffer.remaining()) {
+                    throw new IllegalArgumentException("Binary layout " + (layouts.size() + 1) + " is truncated");
+                }
+                ByteBuffer layout = buffer.slice();
+                layout.limit((int) length);
+                layouts.add(new BHLayout(layout));
+                buffer.position(buffer.position() + (int) length);
+            }
+        }
+        catch (IllegalArgumentException e) {
+            throw new IOException(file + ": " + e.getMessage());
+        }
+        return layouts;
+    }
+
+    /**
+     * Writes the cards left in a layout to a file in the binary format
+     * @param layout
+     * @param file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(BHLayout layout, File file) throws IOException {
+        int piles = layout.numPiles();
+        long cards = 0;
+        for (int p = 0; p < piles; p++) {
+            cards += layout.pileSize(p);
+        }
+        long size = size(piles, cards);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Layout is too large for the binary format");
+        }
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(0);
+            MappedByteBuffer buffer = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(FORMAT);
+            buffer.putInt(layout.numRanks()).putInt(layout.numSuits()).putInt(piles).putInt(layout.holeCard());
+            int offset = 0;
+            for (int p = 0; p < piles; p++) {
+                buffer.putInt(offset);
+                offset += layout.pileSize(p);
+            }
+            buffer.putInt(offset);
+            IntBuffer packed = buffer.asIntBuffer();
+            for (int p = 0; p < piles; p++) {
+                for (int i = 0; i < layout.pileSize(p); i++) {
+                    packed.put(layout.cardAt(p, i));
+                }
+            }
+            buffer.force();
+        }
+    }
+
+    private BinaryLayout() {
+    }
+}
@@ -0,0 +1,116 @@
+package layouts;
+
+import java.nio.IntBuffer;
+
+
+/**
+ * This class stores the cards of a dealt layout exactly once.
+ *
+ * Piles are packed one after another into a single primitive array (bottom card first)
+ * and an offset table marks where each pile starts. A deal never changes once it is built,
+ * so every search state of the same game can share it and only needs to record how many
+ * cards are still left on each pile (see BHLayout). The cards of a binary layout are instead
+ * read in place from the buffer they were mapped into (see BinaryLayout).
+ */
+public final class Deal {
+
+    // Every card of every pile, pile after pile, or null if the cards are read from a buffer
+    private final int[] cards;
+
+    // Every card of every pile read in place from a binary layout, or null
+    private final IntBuffer buffer;
+
+    // offsets[i] is the index of the bottom card of pile i, offsets[numPiles] is the total number of cards
+    private final int[] offsets;
+
+    // Rank keys of the bottom cards of every pile, built on first use, see rankPrefix
+    private volatile long[] prefixes;
+
+    // Getters
+    public int numPiles() {
+        return offsets.length - 1;
+    }
+    public int numCards() {
+        return offsets[numPiles()];
+    }
+    public int pileSize(int pile) {
+        return offsets[pile + 1] - offsets[pile];
+    }
+
+    /**
+     * Retrieve the dealt card at a given location in a pile
+     * @param pile
+     * @param position counted from the bottom of the pile
+     * @return integer value of card
+     */
+    public int cardAt(int pile, int position) {
+        int index = offsets[pile] + position;
+        return cards != null ? cards[index] : buffer.get(index);
+    }
+
+    /**
+     * Finds the key of the ranks of the bottom cards of a pile, which only depends on their ranks in order.
+     * Keys for every height of every pile are worked out the first time one is asked for.
+     * @param ranks ranks of the deck the deal is from
+     * @param pile
+     * @param height number of cards from the bottom of the pile
+     * @return XOR of Zobrist.rank over the cards
+     */
+    long rankPrefix(Ranks ranks, int pile, int height) {
+        long[] table = prefixes;
+        if (table == null) {
+            // Pile i takes entries offsets[i] + i up to offsets[i + 1] + i, one per height
+            table = new long[numCards() + numPiles()];
+            for (int p = 0; p < numPiles(); p++) {
+                long hash = 0L;
+                for (int i = 0; i < pileSize(p); i++) {
+                    hash ^= Zobrist.rank(i, ranks.rank(cardAt(p, i)));
+                    table[offsets[p] + p + i + 1] = hash;
+                }
+            }
+            prefixes = table;
+        }
+        return table[offsets[pile] + pile + height];
+    }
+
+    /**
+     * Creates the starting pile heights for a new search state of this deal
+     * @return a new array of pile heights
+     */
+    int[] fullHeights() {
+        int[] heights = new int[numPiles()];
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = pileSize(i);
+        }
+        return heights;
+    }
+
+    /**
+     * Creates a deal with every pile empty
+     * @param piles
+     * @return a new deal
+     */
+    public static Deal empty(int piles) {
+        return new Deal(new int[0], new int[piles + 1]);
+    }
+
+    /**
+     * @param cards every card of the deal, grouped by pile from the bottom up. The deal takes ownership of the array.
+     * @param offsets start index of each pile in cards followed by the number of cards
+     */
+    public Deal(int[] cards, int[] offsets) {
+        this.cards = cards;
+        this.buffer = null;
+        this.offsets = offsets;
+    }
+
+    /**
+     * @param cards every card of the deal, grouped by pile from the bottom up, which is read in place
+     * @param offsets start index of each pile in cards followed by the number of cards
+     */
+    public Deal(IntBuffer cards, int[] offsets) {
+        this.cards = null;
+        this.buffer = cards;
+        this.offsets = offsets;
+    }
+}
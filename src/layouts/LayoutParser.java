@@ -0,0 +1,264 @@
+package layouts;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+
+/**
+ * Reads layouts written as whitespace separated integers, straight into the primitive arrays of a Deal.
+ *
+ * The input is read in large blocks and numbers are parsed from the bytes by hand, so no token or boxed
+ * integer is ever created. The format is the one BHLayout(ArrayList) reads: ranks, suits, piles and the hole
+ * card, then the cards of each pile from the bottom up with -1 after each pile. Missing values are read as
+ * empty, and anything after the last pile is left unread. Anything that is not a number is an error that
+ * gives the line and column where it was found.
+ */
+public final class LayoutParser {
+
+    /**
+     * Error for input that is not a list of numbers
+     */
+    public static final class MalformedLayoutException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int line;
+
+        private final int column;
+
+        // Getters
+        public int line() {
+            return line;
+        }
+
+        public int column() {
+            return column;
+        }
+
+        MalformedLayoutException(String message, int line, int column) {
+            super("Line " + line + ", column " + column + ": " + message);
+            this.line = line;
+            this.column = column;
+        }
+    }
+
+    // Size of the blocks the input is read in
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private final byte[] bytes = buffer.array();
+
+    // Next byte to read and the number of bytes in the buffer
+    private int position = 0;
+    private int limit = 0;
+
+    private boolean ended = false;
+
+    // Line and column of the next byte, counted from 1
+    private int line = 1;
+    private int column = 1;
+
+    // Line and column the last number started at
+    private int tokenLine = 1;
+    private int tokenColumn = 1;
+
+
+    // Getters
+    /**
+     * @return line the last number read started on
+     */
+    public int line() {
+        return tokenLine;
+    }
+
+    /**
+     * @return column the last number read started at
+     */
+    public int column() {
+        return tokenColumn;
+    }
+
+    /**
+     * Reads the next block of input once the buffer is used up
+     * @return the next byte without consuming it, or -1 at the end of the input
+     */
+    private int peek() throws IOException {
+        while (position == limit) {
+            if (ended) {
+                return BHLayout.ERR;
+            }
+            buffer.clear();
+            int read = channel.read(buffer);
+            if (read < BHLayout.ZERO) {
+                ended = true;
+                return BHLayout.ERR;
+            }
+            position = 0;
+            limit = read;
+        }
+        return bytes[position] & 0xFF;
+    }
+
+    /**
+     * Consumes the byte returned by peek
+     */
+    private void advance() {
+        if (bytes[position++] == '\n') {
+            line++;
+            column = 1;
+        }
+        else {
+            column++;
+        }
+    }
+
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f';
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @param c
+     * @return description of a byte for an error message
+     */
+    private static String describe(int c) {
+        if (c == BHLayout.ERR) {
+            return "the end of the input";
+        }
+        if (c >= ' ' && c < 0x7F) {
+            return "'" + (char) c + "'";
+        }
+        return String.format("byte 0x%02X", c);
+    }
+
+    /**
+     * Skips whitespace up to the next number
+     * @return true if there is anything left to read
+     */
+    public boolean hasNext() throws IOException {
+        int c = peek();
+        while (c != BHLayout.ERR && isSpace(c)) {
+            advance();
+            c = peek();
+        }
+        return c != BHLayout.ERR;
+    }
+
+    /**
+     * Reads the next number
+     * @return value of the number
+     * @throws MalformedLayoutException if the next thing in the input is not a number that fits in an int
+     */
+    public int nextInt() throws IOException {
+        hasNext();
+        tokenLine = line;
+        tokenColumn = column;
+        int c = peek();
+        boolean negative = false;
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            advance();
+            c = peek();
+        }
+        if (!isDigit(c)) {
+            throw new MalformedLayoutException("expected a number but found " + describe(c), line, column);
+        }
+        long value = 0;
+        while (isDigit(c)) {
+            value = value * 10 + (c - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new MalformedLayoutException("number is too large", tokenLine, tokenColumn);
+            }
+            advance();
+            c = peek();
+        }
+        if (c != BHLayout.ERR && !isSpace(c)) {
+            throw new MalformedLayoutException("expected a number but found " + describe(c), line, column);
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new MalformedLayoutException("number is too large", tokenLine, tokenColumn);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads the next layout
+     * @return a new layout
+     * @throws MalformedLayoutException if the layout holds anything that is not a number
+     */
+    public BHLayout readLayout() throws IOException {
+        int ranks = hasNext() ? nextInt() : BHLayout.ZERO;
+        int suits = hasNext() ? nextInt() : BHLayout.ZERO;
+        int piles = hasNext() ? nextInt() : BHLayout.ZERO;
+        int hole = hasNext() ? nextInt() : BHLayout.ZERO;
+        if (piles < BHLayout.ZERO) {
+            piles = BHLayout.DEFAULT_PILES;
+        }
+        // Start with room for a full deck, growing if there are more cards
+        int[] cards = new int[(int) Math.min((long) Math.max(ranks, BHLayout.ONE) * Math.max(suits, BHLayout.ONE), BUFFER_SIZE)];
+        int[] offsets = new int[piles + 1];
+        int size = 0;
+        int nextpile = 0;
+        while (nextpile < piles && hasNext()) {
+            int card = nextInt();
+            if (card == BHLayout.ERR) {
+                nextpile++;
+                offsets[nextpile] = size;
+            }
+            else {
+                if (size == cards.length) {
+                    cards = Arrays.copyOf(cards, size * 2);
+                }
+                cards[size++] = card;
+            }
+        }
+        // Any piles that were never closed are empty
+        while (nextpile < piles) {
+            nextpile++;
+            offsets[nextpile] = size;
+        }
+        return new BHLayout(ranks, suits, hole, new Deal(cards, offsets));
+    }
+
+    /**
+     * Reads a layout from a file
+     * @param file
+     * @return a new layout
+     * @throws java.io.FileNotFoundException if the file cannot be opened
+     * @throws MalformedLayoutException if the layout holds anything that is not a number
+     */
+    public static BHLayout read(File file) throws IOException {
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            return new LayoutParser(channel).readLayout();
+        }
+    }
+
+
+    /**
+     * @param in stream to read from, which is left open
+     */
+    public LayoutParser(InputStream in) {
+        this(Channels.newChannel(in));
+    }
+
+    /**
+     * @param channel channel to read from, which is left open
+     */
+    public LayoutParser(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+}
@@ -0,0 +1,153 @@
+package layouts;
+
+
+/**
+ * This class stores the rank of every card in a deck along with which ranks are adjacent to each other.
+ *
+ * Cards 1..ranks are the first suit, ranks+1..2*ranks the second and so on. The table is built once
+ * when a layout is created and shared by every copy of it, so checking whether a card can go on the
+ * hole card is a few array reads however big the deck is. Decks too large for a table work out ranks
+ * with arithmetic instead.
+ */
+public final class Ranks {
+
+    // Largest deck whose ranks are stored in a lookup table
+    private static final int MAX_TABLE = 1 << 22;
+
+    private final int numranks;
+
+    private final int numsuits;
+
+    private final int cards;
+
+    // rank[card] for every card in the deck, ERR for card 0, or null if the deck is too large
+    private final int[] rank;
+
+    // up[r] and down[r] are the ranks either side of rank r, wrapping from the highest rank to the lowest
+    private final int[] up;
+    private final int[] down;
+
+
+    // Getters
+    public int numRanks() {
+        return numranks;
+    }
+    public int numSuits() {
+        return numsuits;
+    }
+
+    /**
+     * @param card
+     * @return rank of the card from 1 to numRanks, or -1 if the card is not in the deck
+     */
+    public int rank(int card) {
+        if (card <= BHLayout.ZERO || card > cards) {
+            return BHLayout.ERR;
+        }
+        if (rank != null) {
+            return rank[card];
+        }
+        return ((card - 1) % numranks) + 1;
+    }
+
+    /**
+     * @param card
+     * @return suit of the card from 1 to numSuits, or -1 if the card is not in the deck
+     */
+    public int suit(int card) {
+        if (card <= BHLayout.ZERO || card > cards) {
+            return BHLayout.ERR;
+        }
+        return ((card - 1) / numranks) + 1;
+    }
+
+    /**
+     * @param rank rank from 1 to numRanks
+     * @return the rank above, the lowest rank above the highest
+     */
+    public int up(int rank) {
+        if (up != null) {
+            return up[rank];
+        }
+        return rank == numranks ? BHLayout.ONE : rank + 1;
+    }
+
+    /**
+     * @param rank rank from 1 to numRanks
+     * @return the rank below, the highest rank below the lowest
+     */
+    public int down(int rank) {
+        if (down != null) {
+            return down[rank];
+        }
+        return rank == BHLayout.ONE ? numranks : rank - 1;
+    }
+
+    /**
+     * Counts the cards of ranks adjacent to a rank, not counting a card of the rank itself
+     * @param rank rank from 1 to numRanks of a card which is included in counts
+     * @param counts cards of each rank
+     * @return number of adjacent cards
+     */
+    public int adjacentCount(int rank, int[] counts) {
+        int u = up(rank);
+        int d = down(rank);
+        int left = counts[u];
+        if (d != u) {
+            left += counts[d];
+        }
+        // With a single rank a card is adjacent to its own rank
+        if (u == rank) {
+            left--;
+        }
+        return left;
+    }
+
+    /**
+     * Checks whether two cards have adjacent ranks, counting the highest and lowest ranks as adjacent
+     * @param card
+     * @param other
+     * @return true if either card can be played on the other
+     */
+    public boolean adjacent(int card, int other) {
+        int r = rank(card);
+        int o = rank(other);
+        if (r == BHLayout.ERR || o == BHLayout.ERR) {
+            return false;
+        }
+        if (up != null) {
+            return r == up[o] || r == down[o];
+        }
+        return r == (o == numranks ? BHLayout.ONE : o + 1) || r == (o == BHLayout.ONE ? numranks : o - 1);
+    }
+
+
+    /**
+     * @param ranks
+     * @param suits
+     */
+    public Ranks(int ranks, int suits) {
+        this.numranks = ranks;
+        this.numsuits = suits;
+        // A deck with no ranks or no suits has no valid cards
+        this.cards = ranks < BHLayout.ONE || suits < BHLayout.ONE ? BHLayout.ZERO : ranks * suits;
+        if (cards > BHLayout.ZERO && cards <= MAX_TABLE) {
+            rank = new int[cards + 1];
+            rank[0] = BHLayout.ERR;
+            for (int card = 1; card <= cards; card++) {
+                rank[card] = ((card - 1) % ranks) + 1;
+            }
+            up = new int[ranks + 1];
+            down = new int[ranks + 1];
+            for (int r = 1; r <= ranks; r++) {
+                up[r] = r == ranks ? BHLayout.ONE : r + 1;
+                down[r] = r == BHLayout.ONE ? ranks : r - 1;
+            }
+        }
+        else {
+            rank = null;
+            up = null;
+            down = null;
+        }
+    }
+}
@@ -15,6 +15,15 @@ public class WHLayout extends BHLayout {
         return this.wormhole;
     }
 
+    /**
+     * Counts the worm hole card as well as the cards on the piles
+     * @return number of cards left to move to the hole
+     */
+    @Override
+    public int cardsLeft() {
+        return this.wormhole == BHLayout.ERR ? cardsLeft : cardsLeft + BHLayout.ONE;
+    }
+
     /**
      * Setter for the worm hole
      * Will return an error if the worm hole is already taken
@@ -23,6 +32,7 @@ public class WHLayout extends BHLayout {
      */
     public int setWormHole(int card) {
         if (this.wormhole == BHLayout.ERR) {
+            key ^= Zobrist.worm(BHLayout.ERR) ^ Zobrist.worm(Math.abs(card));
             this.wormhole = Math.abs(card);
             return BHLayout.ONE;
         }
@@ -51,6 +61,7 @@ public class WHLayout extends BHLayout {
     @Override
     public int removeTopCard(int pile) {
         if (pile == BHLayout.ERR) {
+            key ^= Zobrist.worm(this.wormhole) ^ Zobrist.worm(BHLayout.ERR);
             this.wormhole = BHLayout.ERR;
             return BHLayout.ONE;
         }
@@ -72,6 +83,9 @@ public class WHLayout extends BHLayout {
 
         // Check if the entire layout is identical
         WHLayout layout = (WHLayout) o;
+        if (layout.stateKey() != this.key) {
+            return false;
+        }
         boolean equals;
         equals = layout.numRanks() == this.numranks;
         equals = equals && layout.numSuits() == this.numsuits;
@@ -89,26 +103,34 @@ public class WHLayout extends BHLayout {
     }
 
     /**
-     * hashCode function which includes the worm hole
-     * @return hash code
+     * Adds the worm hole card to the Zobrist key of the layout
+     * @return 64-bit key
+     */
+    @Override
+    protected long computeKey() {
+        return super.computeKey() ^ Zobrist.worm(this.wormhole);
+    }
+
+    /**
+     * Adds the rank of the worm hole card to the symmetry key of the layout
+     * @return 64-bit key
      */
     @Override
-    public int hashCode() {
-        return this.numsuits + this.numpiles + this.numranks + this.holecard + this.wormhole;
+    public long symmetryKey() {
+        int rank = this.wormhole == BHLayout.ERR ? BHLayout.ERR : getCardRank(this.wormhole);
+        return super.symmetryKey() ^ Zobrist.worm(rank);
     }
 
     // Constructor for bringing a black hole layout to a worm hole layout
     public WHLayout(BHLayout layout) {
-        this.holecard = layout.holeCard();
-        this.layout = layout.copyLayout();
-        this.numsuits = layout.numSuits();
-        this.numpiles = layout.numPiles();
-        this.numranks = layout.numRanks();
+        super(layout);
         this.wormhole = BHLayout.ERR;
+        this.key = computeKey();
     }
     // Constructor if we want to have the worm hole initialised with a given value
     public WHLayout(BHLayout layout, int wormhole) {
         this(layout);
+        this.key ^= Zobrist.worm(BHLayout.ERR) ^ Zobrist.worm(wormhole);
         this.wormhole = wormhole;
     }
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package layouts;
+
+
+/**
+ * Zobrist style hashing for layouts.
+ *
+ * A layout's key is the XOR of one random 64-bit value per feature of the state: the top card of
+ * each pile, the hole card, the worm hole card and the deck parameters. A move only changes a couple
+ * of features, so the key can be updated in constant time by XORing the old value out and the new one in.
+ *
+ * Rather than storing a table of random values per deal, each value is produced by passing the feature
+ * through the SplitMix64 finaliser. This gives the same mixing quality, works for any card value
+ * (including the out of range cards in malformed layouts) and costs no memory for very large decks.
+ */
+public final class Zobrist {
+
+    // Salts keeping the different kinds of feature apart
+    private static final long PILE = 0x9E3779B97F4A7C15L;
+    private static final long HOLE = 0xC2B2AE3D27D4EB4FL;
+    private static final long WORM = 0x165667B19E3779F9L;
+    private static final long DECK = 0xD6E8FEB86659FD93L;
+    private static final long RANK = 0x27D4EB2F165667C5L;
+
+    /**
+     * SplitMix64 finaliser, spreads every input bit across the whole output
+     * @param z
+     * @return mixed value
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @param pile
+     * @param card top card of the pile, or -1 if it is empty
+     * @return key of a pile showing the given top card
+     */
+    public static long pile(int pile, int card) {
+        return mix((((long) pile << 32) | (card & 0xFFFFFFFFL)) + PILE);
+    }
+
+    /**
+     * @param position position in a pile, counted from the bottom
+     * @param rank rank of the card at that position
+     * @return key of a card of the given rank at the given position, whatever its pile or suit
+     */
+    public static long rank(int position, int rank) {
+        return mix((((long) position << 32) | (rank & 0xFFFFFFFFL)) + RANK);
+    }
+
+    /**
+     * @param card
+     * @return key of the given hole card
+     */
+    public static long hole(int card) {
+        return mix(card + HOLE);
+    }
+
+    /**
+     * @param card worm hole card, or -1 if it is empty
+     * @return key of the given worm hole card
+     */
+    public static long worm(int card) {
+        return mix(card + WORM);
+    }
+
+    /**
+     * @param ranks
+     * @param suits
+     * @param piles
+     * @return key of the deck parameters
+     */
+    public static long deck(int ranks, int suits, int piles) {
+        return mix(mix(mix(ranks + DECK) + suits) + piles);
+    }
+
+    private Zobrist() {
+    }
+}
@@ -1,13 +1,38 @@
 package performance;
+import common.BHMain;
+import functions.BatchGenerator;
+import functions.BeamSolver;
+import functions.BestFirstSolver;
+import functions.Dominance;
+import functions.GoalSet;
+import functions.IterativeDeepeningSolver;
+import functions.ParallelSolver;
+import functions.RestartSolver;
 import functions.Solver;
+import functions.Tablebase;
 import functions.Writer;
 import layouts.BHLayout;
+import layouts.BinaryLayout;
+import layouts.LayoutParser;
 import layouts.WHLayout;
+import types.Heuristic;
+import types.MoveOrdering;
+import types.TranspositionTable;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.Scanner;
 
 
 /**
@@ -20,6 +45,9 @@ public class PerformanceTest {
 
     private static final double rankRatio = 13f/52f;
 
+    // Seeds used by seedTest, repeated for the parallel speedup curve and the move orderings
+    private static final int[] seeds = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 15, 20, 25, 30, 40, 50, 60, 70, 80};
+
 
     private BHLayout layout;
     private Random rand;
@@ -81,6 +109,179 @@ public class PerformanceTest {
         writer.run(Writer.format(suits, solver.getElapsedTime(), solver.getNodesVisited(), solver.getSolution() != null), "part2", "suit", suits);
     }
 
+    /**
+     * Runs the searching algorithm on the suitTest decks, filtering visited states by symmetry key
+     * @param suits
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4, 13, 26, 52})
+    public void suitSymmetryTest(int suits) {
+        int numcards = 52;
+        int ranks = numcards /suits;
+        layout = run(rand.nextInt(), numcards, ranks, suits, 10);
+
+        Solver solver = new Solver(new BHLayout(layout), false, true);
+        solver.setSymmetry(true);
+        solver.run();
+
+        Writer writer = new Writer();
+        writer.run(Writer.format(suits, solver.getElapsedTime(), solver.getNodesVisited(), solver.getSolution() != null), "part2", "suitsymmetry", suits);
+    }
+
+    /**
+     * Runs the searching algorithm on standard decks, looking states up in tablebases of increasing size
+     * @param cards largest number of cards left in a position in the tablebase
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {0, 2, 4, 6, 7, 8})
+    public void endgameTablebaseTest(int cards) throws IOException {
+        layout = run(rand.nextInt(), 51, 13, 4, 17);
+        File file = File.createTempFile("endgames", ".tb");
+        file.deleteOnExit();
+        Tablebase.generate(file, cards, 13, 4);
+
+        Solver solver = new Solver(new BHLayout(layout), false, true);
+        solver.setTablebase(new Tablebase(file));
+        solver.run();
+
+        Writer writer = new Writer();
+        writer.run(Writer.format(cards, solver.getElapsedTime(), solver.getNodesVisited(), solver.getSolution() != null), "part2", "tablebase", cards);
+    }
+
+    /**
+     * Runs the searching algorithm on every black hole layout, skipping states outside goal sets built with
+     * increasing time budgets. The nodes the goal set skipped are stored separately.
+     * @param budget milliseconds spent building each goal set
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {0, 10, 100, 1000})
+    public void goalSetTest(int budget) {
+        File[] files = new File("."+File.separator+"files"+File.separator+"BlackHole").listFiles();
+        if (files == null) {
+            return;
+        }
+        double time = 0;
+        long nodes = 0;
+        long eliminated = 0;
+        for (File file : files) {
+            layout = new BHLayout(BHMain.readIntArray(file.getPath()));
+            Solver solver = new Solver(new BHLayout(layout), false, true);
+            solver.setGoalBudget(budget);
+            solver.run();
+            GoalSet goals = solver.getGoals();
+            time += solver.getElapsedTime() + (goals == null ? 0 : goals.buildTime());
+            nodes += solver.getNodesVisited();
+            eliminated += goals == null ? 0 : goals.eliminated();
+        }
+
+        Writer writer = new Writer();
+        writer.run(Writer.format(budget, time, (int) nodes, true), "part2", "goalset", budget);
+        writer.run(Writer.format(budget, time, (int) eliminated, true), "part2", "goalseteliminated", budget);
+    }
+
+    /**
+     * Reads layouts of increasing size with the layout parser, and with a Scanner into a list of integers
+     * as BHMain used to. The number of cards is stored in place of the nodes.
+     * @param numcards
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {52, 520, 5200, 52000, 480000})
+    public void parseTest(int numcards) throws IOException {
+        int suits = Math.max(numcards / 13, 1);
+        layout = run(rand.nextInt(), 13 * suits - 1, 13, suits, 17);
+        StringBuilder text = new StringBuilder();
+        text.append(layout.numRanks()).append(' ').append(layout.numSuits()).append(' ').append(layout.numPiles());
+        text.append('\n').append(layout.holeCard()).append('\n');
+        for (int p = 0; p < layout.numPiles(); p++) {
+            for (int i = 0; i < layout.pileSize(p); i++) {
+                text.append(layout.cardAt(p, i)).append(' ');
+            }
+            text.append("-1\n");
+        }
+        byte[] bytes = text.toString().getBytes();
+
+        double start = System.nanoTime();
+        BHLayout parsed = new LayoutParser(new ByteArrayInputStream(bytes)).readLayout();
+        double parserTime = (System.nanoTime() - start) / 1000000;
+
+        start = System.nanoTime();
+        BHLayout scanned = new BHLayout(BHMain.readIntArray(new Scanner(new ByteArrayInputStream(bytes))));
+        double scannerTime = (System.nanoTime() - start) / 1000000;
+
+        Writer writer = new Writer();
+        writer.run(Writer.format(numcards, parserTime, parsed.cardsLeft(), parsed.equals(scanned)), "part2", "parse", numcards);
+        writer.run(Writer.format(numcards, scannerTime, scanned.cardsLeft(), true), "part2", "parsescanner", numcards);
+    }
+
+    /**
+     * Reads the layouts of parseTest from a binary layout file, and from the same layout as text with the
+     * layout parser. The number of cards is stored in place of the nodes.
+     * @param numcards
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {52, 520, 5200, 52000, 480000})
+    public void binaryLayoutTest(int numcards) throws IOException {
+        int suits = Math.max(numcards / 13, 1);
+        layout = run(rand.nextInt(), 13 * suits - 1, 13, suits, 17);
+        File binary = File.createTempFile("layout", ".bin");
+        binary.deleteOnExit();
+        BinaryLayout.write(layout, binary);
+        File text = File.createTempFile("layout", ".txt");
+        text.deleteOnExit();
+        try (PrintStream out = new PrintStream(text)) {
+            layout.print(out);
+        }
+
+        double start = System.nanoTime();
+        BHLayout mapped = BinaryLayout.read(binary);
+        double binaryTime = (System.nanoTime() - start) / 1000000;
+
+        start = System.nanoTime();
+        BHLayout parsed = LayoutParser.read(text);
+        double parserTime = (System.nanoTime() - start) / 1000000;
+
+        Writer writer = new Writer();
+        writer.run(Writer.format(numcards, binaryTime, mapped.cardsLeft(), mapped.equals(layout)), "part2", "binaryload", numcards);
+        writer.run(Writer.format(numcards, parserTime, parsed.cardsLeft(), parsed.equals(layout)), "part2", "binaryloadtext", numcards);
+    }
+
+    /**
+     * Generates an increasing number of seeds of a standard deck with the batch generator, and by dealing and
+     * printing each layout in turn as GEN used to. Both write text to a file. The number of bytes written is
+     * stored in place of the nodes, and whether the outputs match in place of the solution.
+     * @param seeds
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {100, 1000, 10000, 100000})
+    public void genBatchTest(int seeds) throws IOException {
+        File batch = File.createTempFile("layouts", ".txt");
+        batch.deleteOnExit();
+        File printed = File.createTempFile("layouts", ".txt");
+        printed.deleteOnExit();
+        ArrayList<BatchGenerator.Deck> decks = BatchGenerator.decks("51", "13", "4", "17");
+
+        double start = System.nanoTime();
+        try (FileChannel channel = new FileOutputStream(batch).getChannel()) {
+            new BatchGenerator(false, 0).run(decks, 1, seeds, channel);
+        }
+        double batchTime = (System.nanoTime() - start) / 1000000;
+
+        start = System.nanoTime();
+        try (PrintStream out = new PrintStream(printed)) {
+            for (int seed = 1; seed <= seeds; seed++) {
+                layout = new BHLayout(13, 4, 17);
+                layout.randomise(seed, 51);
+                layout.print(out);
+            }
+        }
+        double printTime = (System.nanoTime() - start) / 1000000;
+
+        boolean same = Arrays.equals(Files.readAllBytes(batch.toPath()), Files.readAllBytes(printed.toPath()));
+        Writer writer = new Writer();
+        writer.run(Writer.format(seeds, batchTime, (int) batch.length(), same), "part2", "genbatch", seeds);
+        writer.run(Writer.format(seeds, printTime, (int) printed.length(), same), "part2", "genbatchprint", seeds);
+    }
+
     /**
      * Runs the searching algorithm with increasing number of cards in the deck
      * @param numcards
@@ -101,6 +302,52 @@ public class PerformanceTest {
 
     }
 
+    /**
+     * Runs the iterative deepening solver on the deckSizeTest decks, with its filter bounded to 16MB
+     * The whole run is stored alongside deckSizeTest, and the nodes visited by each iteration separately
+     * @param numcards
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {20, 30, 40, 52, 60, 70, 80, 90, 100, 200, 400, 600, 800, 900, 1000, 1500, 2000, 2500, 3000, 4000, 5000})
+    public void deckSizeDeepeningTest(int numcards) {
+        int suits = (int)(numcards * suitRatio);
+        int ranks = (int) (numcards * rankRatio);
+        int newNum = suits * ranks;
+        layout = run(rand.nextInt(), newNum, ranks, suits, 10);
+
+        IterativeDeepeningSolver solver = new IterativeDeepeningSolver(new BHLayout(layout), false, true);
+        solver.setFilterBudget(16L << 20, TranspositionTable.Replacement.DEPTH_PREFERRED);
+        solver.run();
+
+        Writer writer = new Writer();
+        writer.run(Writer.format(numcards, solver.getElapsedTime(), solver.getNodesVisited(), solver.getSolution() != null), "part2", "decksizedeepening", newNum);
+        ArrayList<Integer> limits = solver.getLimits();
+        ArrayList<Integer> nodes = solver.getIterationNodes();
+        for (int i = 0; i < limits.size(); i++) {
+            writer.run(Writer.format(limits.get(i), solver.getElapsedTime(), nodes.get(i), solver.getSolution() != null), "deepening", "decksize" + newNum, i);
+        }
+    }
+
+    /**
+     * Runs the beam solver at its default width on the deckSizeTest decks
+     * A run that ends without a solution after dropping states is stored as unsolved
+     * @param numcards
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {20, 30, 40, 52, 60, 70, 80, 90, 100, 200, 400, 600, 800, 900, 1000, 1500, 2000, 2500, 3000, 4000, 5000})
+    public void deckSizeBeamTest(int numcards) {
+        int suits = (int)(numcards * suitRatio);
+        int ranks = (int) (numcards * rankRatio);
+        int newNum = suits * ranks;
+        layout = run(rand.nextInt(), newNum, ranks, suits, 10);
+
+        BeamSolver solver = new BeamSolver(new BHLayout(layout), false, true);
+        solver.run();
+
+        Writer writer = new Writer();
+        writer.run(Writer.format(numcards, solver.getElapsedTime(), solver.getNodesVisited(), solver.getSolution() != null), "part2", "decksizebeam", newNum);
+    }
+
     /**
      * Runs the searching algorithm with different numbers of piles in the puzzle
      * @param piles
@@ -134,6 +381,108 @@ public class PerformanceTest {
         writer.run(Writer.format(seed, solver.getElapsedTime(), solver.getNodesVisited(), solver.getSolution() != null), "part2", "seed", seed);
     }
 
+    /**
+     * Runs the parallel solver on the seedTest layouts with an increasing number of threads
+     * Results for each seed are stored by thread count so the speedup over one thread can be plotted
+     * @param threads
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4, 8, 16, 32})
+    public void threadTest(int threads) {
+        for (int seed : seeds) {
+            layout = new BHLayout();
+            layout.randomise(seed);
+
+            ParallelSolver solver = new ParallelSolver(new BHLayout(layout), false, false, true, threads);
+            solver.run();
+
+            Writer writer = new Writer();
+            writer.run(Writer.format(threads, solver.getElapsedTime(), solver.getNodesVisited(), solver.getSolution() != null), "parallel", "seed" + seed, threads);
+        }
+    }
+
+    /**
+     * Runs the restart solver on the seedTest layouts with an increasing number of threads
+     * Results for each seed are stored by thread count alongside threadTest
+     * @param threads
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4, 8, 16, 32})
+    public void restartTest(int threads) {
+        for (int seed : seeds) {
+            layout = new BHLayout();
+            layout.randomise(seed);
+
+            RestartSolver solver = new RestartSolver(new BHLayout(layout), false, true, RestartSolver.DEFAULT_SEED, threads);
+            solver.run();
+
+            Writer writer = new Writer();
+            writer.run(Writer.format(threads, solver.getElapsedTime(), solver.getNodesVisited(), solver.getSolution() != null), "restart", "seed" + seed, threads);
+        }
+    }
+
+    /**
+     * Runs the searching algorithm on the seedTest layouts with each move ordering
+     * Results are stored per ordering and seed so the node counts can be compared seed by seed
+     * @param name
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"PILE", "TALLEST", "BURIED", "HISTORY"})
+    public void orderingTest(String name) {
+        for (int seed : seeds) {
+            layout = new BHLayout();
+            layout.randomise(seed);
+
+            Solver solver = new Solver(new BHLayout(layout), false, true);
+            solver.setOrdering(MoveOrdering.create(name));
+            solver.run();
+
+            Writer writer = new Writer();
+            writer.run(Writer.format(seed, solver.getElapsedTime(), solver.getNodesVisited(), solver.getSolution() != null), "ordering", name.toLowerCase(), seed);
+        }
+    }
+
+    /**
+     * Runs the best-first solver with each heuristic on the seedTest layouts
+     * Results are stored per heuristic and seed so they can be compared with seedTest seed by seed
+     * @param name
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"CARDS", "STUCK", "MOBILITY"})
+    public void seedBestFirstTest(String name) {
+        for (int seed : seeds) {
+            layout = new BHLayout();
+            layout.randomise(seed);
+
+            BestFirstSolver solver = new BestFirstSolver(new BHLayout(layout), false, false, true, Heuristic.create(name), BestFirstSolver.DEFAULT_MAX_FRONTIER);
+            solver.run();
+
+            Writer writer = new Writer();
+            writer.run(Writer.format(seed, solver.getElapsedTime(), solver.getNodesVisited(), solver.getSolution() != null), "bestfirst", "seed" + name.toLowerCase(), seed);
+        }
+    }
+
+    /**
+     * Runs the solver and the best-first solver with each heuristic on the same layout, for different numbers of piles
+     * @param piles
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {2, 4, 5, 8, 9, 10, 15, 20, 22, 25, 28, 30, 32, 35, 38, 40, 42, 45, 50, 52})
+    public void pileBestFirstTest(int piles) {
+        layout = run(rand.nextInt(), 52, 13, 4, piles);
+
+        Solver solver = new Solver(new BHLayout(layout), false, true);
+        solver.run();
+
+        Writer writer = new Writer();
+        writer.run(Writer.format(piles, solver.getElapsedTime(), solver.getNodesVisited(), solver.getSolution() != null), "bestfirst", "pilesolver", piles);
+        for (String name : Heuristic.NAMES) {
+            BestFirstSolver bestFirst = new BestFirstSolver(new BHLayout(layout), false, false, true, Heuristic.create(name), BestFirstSolver.DEFAULT_MAX_FRONTIER);
+            bestFirst.run();
+            writer.run(Writer.format(piles, bestFirst.getElapsedTime(), bestFirst.getNodesVisited(), bestFirst.getSolution() != null), "bestfirst", "pile" + name.toLowerCase(), piles);
+        }
+    }
+
     /**
      * Worm hole search test with different ranks
      * @param ranks
@@ -206,6 +555,23 @@ public class PerformanceTest {
         writer.run(Writer.format(piles, solver.getElapsedTime(), solver.getNodesVisited(), solver.getSolution() != null), "part3", "pile", piles);
     }
 
+    /**
+     * Worm hole search test with increasing number of piles, skipping dominated worm hole moves
+     * @param piles
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {2, 4, 5, 8, 9, 10, 15, 20, 22, 25, 28, 30, 32, 35, 38, 40, 42, 45, 50, 52})
+    public void pileWhDominanceTest(int piles) {
+        layout = run(rand.nextInt(), 52, 13, 4, piles);
+
+        Solver solver = new Solver(new WHLayout(layout), true, true);
+        solver.setDominance(Dominance.Rule.values());
+        solver.run();
+
+        Writer writer = new Writer();
+        writer.run(Writer.format(piles, solver.getElapsedTime(), solver.getNodesVisited(), solver.getSolution() != null), "part3", "piledominance", piles);
+    }
+
     /**
      * Worm hole search test with different seeds for layout generation
      * @param seed
@@ -0,0 +1,113 @@
+package performance;
+
+import functions.Writer;
+import layouts.BHLayout;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import types.ConcurrentStateSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Measures the throughput of the visited state sets, comparing the original HashSet of layouts
+ * with the lock-free set of state keys used by the parallel solver
+ */
+public class StateSetPerformanceTest {
+
+    // Number of layouts added to each set
+    private static final int STATES = 1000000;
+
+    // Layouts visited along random plays of random deals, a mix of new and repeated states
+    private static ArrayList<BHLayout> states;
+
+    @BeforeAll
+    public static void start() {
+        Random rand = new Random(1);
+        states = new ArrayList<>(STATES);
+        while (states.size() < STATES) {
+            BHLayout layout = new BHLayout();
+            layout.randomise(rand.nextInt());
+            while (layout.cardsLeft() > 0 && states.size() < STATES) {
+                int pile = rand.nextInt(layout.numPiles());
+                int card = layout.topCard(pile);
+                if (card != BHLayout.ERR) {
+                    layout = new BHLayout(layout);
+                    layout.setHole(card);
+                    layout.removeTopCard(pile);
+                    states.add(layout);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds every state from a number of threads, each thread taking an equal share
+     * @param threads
+     * @param add adds a state to the set being measured
+     * @return time taken in milliseconds
+     */
+    private static double fill(int threads, Consumer<BHLayout> add) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        double startTime = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            workers[t] = new Thread(() -> {
+                for (int i = first; i < STATES; i += threads) {
+                    add.accept(states.get(i));
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return (System.nanoTime() - startTime) / 1000000;
+    }
+
+    /**
+     * Adds the layouts to a HashSet on one thread, as Solver originally filtered states
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1})
+    public void hashSetTest(int threads) throws InterruptedException {
+        Set<BHLayout> set = new HashSet<>();
+        double time = fill(threads, set::add);
+
+        Writer writer = new Writer();
+        writer.run(Writer.format(threads, time, set.size(), true), "stateset", "hashset", threads);
+    }
+
+    /**
+     * Adds the layouts to a HashSet shared between threads behind a lock
+     * @param threads
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4, 8, 16, 32})
+    public void synchronizedSetTest(int threads) throws InterruptedException {
+        Set<BHLayout> set = Collections.synchronizedSet(new HashSet<>());
+        double time = fill(threads, set::add);
+
+        Writer writer = new Writer();
+        writer.run(Writer.format(threads, time, set.size(), true), "stateset", "synchronized", threads);
+    }
+
+    /**
+     * Adds the state keys of the layouts to the lock-free set shared between threads
+     * @param threads
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4, 8, 16, 32})
+    public void concurrentSetTest(int threads) throws InterruptedException {
+        ConcurrentStateSet set = new ConcurrentStateSet();
+        double time = fill(threads, layout -> set.add(layout.stateKey()));
+
+        Writer writer = new Writer();
+        writer.run(Writer.format(threads, time, (int) set.size(), true), "stateset", "concurrent", threads);
+    }
+}
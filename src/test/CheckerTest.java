@@ -7,6 +7,7 @@ import functions.Solver;
 import layouts.BHLayout;
 import layouts.WHLayout;
 import org.junit.jupiter.api.Test;
+import types.MoveLog;
 import types.Tuple;
 
 import java.util.ArrayList;
@@ -36,6 +37,8 @@ public class CheckerTest extends SuperTest {
         integerList.add(BHLayout.ONE);
         integerList.add(BHLayout.ZERO);
         assertEquals(integerList, Checker.unwrapLog(tupleList));
+        assertEquals(integerList, Checker.unwrapLog(MoveLog.fromList(tupleList)));
+        assertEquals(new ArrayList<Integer>(), Checker.unwrapLog(MoveLog.EMPTY));
     }
 
     /**
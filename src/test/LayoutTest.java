@@ -1,11 +1,26 @@
 package test;
 
 import common.BHMain;
+import functions.BatchGenerator;
 import layouts.BHLayout;
+import layouts.BinaryLayout;
+import layouts.LayoutParser;
 import layouts.WHLayout;
 import org.junit.jupiter.api.Test;
 import types.Node;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -77,6 +92,22 @@ public class LayoutTest extends SuperTest {
         assertEquals(BHLayout.ERR, layout.removeTopCard(0));
     }
 
+    /**
+     * Tests that a pile taller than 65535 cards keeps its height as cards are moved
+     */
+    @Test
+    public void largePileTest() {
+        BHLayout large = new BHLayout(13, 8000, 1);
+        large.randomise(0, 100000);
+        assertEquals(100000, large.pileSize(0));
+        int top = large.topCard(0);
+        assertEquals(BHLayout.ONE, large.removeTopCard(0));
+        assertEquals(99999, large.pileSize(0));
+        large.restoreTopCard(0);
+        assertEquals(100000, large.pileSize(0));
+        assertEquals(top, large.topCard(0));
+    }
+
     /**
      * Tests the overridden equality behaviour of the BHLayout class
      */
@@ -166,4 +197,262 @@ public class LayoutTest extends SuperTest {
 
     }
 
+    /**
+     * Tests that copies of a layout share the deal but can remove cards independently
+     */
+    @Test
+    public void copyTest() {
+        layout = new BHLayout(BHMain.readIntArray(bhStandard));
+        BHLayout copy = new BHLayout(layout);
+        assertEquals(BHLayout.ONE, copy.removeTopCard(0));
+        assertEquals(layout.pileSize(0) - 1, copy.pileSize(0));
+        assertEquals(layout.cardAt(0, 1), copy.topCard(0));
+        assertEquals(26, layout.topCard(0));
+        assertFalse(copy.equals(layout));
+
+        WHLayout whCopy = new WHLayout(copy);
+        assertEquals(copy.pileSize(0), whCopy.pileSize(0));
+        assertEquals(BHLayout.ONE, whCopy.removeTopCard(0));
+        assertEquals(copy.pileSize(0) - 1, whCopy.pileSize(0));
+    }
+
+    /**
+     * Tests that the Zobrist key updated move by move matches the key of the same state built from scratch
+     */
+    @Test
+    public void stateKeyTest() {
+        layout = new BHLayout(BHMain.readIntArray(bhStandard));
+        BHLayout node = new BHLayout(BHMain.readIntArray(bhStandardNode));
+        assertNotEquals(node.stateKey(), layout.stateKey());
+        layout.removeTopCard(0);
+        layout.setHole(26);
+        assertEquals(node.stateKey(), layout.stateKey());
+        assertEquals(node.hashCode(), layout.hashCode());
+
+        whLayout = new WHLayout(new BHLayout(BHMain.readIntArray(whStandard)));
+        WHLayout whNode = new WHLayout(new BHLayout(BHMain.readIntArray(whStandardNode)), 26);
+        whLayout.setWormHole(26);
+        whLayout.removeTopCard(0);
+        assertEquals(whNode.stateKey(), whLayout.stateKey());
+        whLayout.removeTopCard(BHLayout.ERR);
+        assertNotEquals(whNode.stateKey(), whLayout.stateKey());
+        assertEquals(new WHLayout(whNode).stateKey(), whLayout.stateKey());
+    }
+
+    /**
+     * Tests that the symmetry key ignores suits and the order of the piles, but not the order of ranks in a pile
+     */
+    @Test
+    public void symmetryKeyTest() {
+        // Three ranks in two suits, so cards 1 and 4, 2 and 5, 3 and 6 have the same ranks
+        BHLayout first = new BHLayout(new ArrayList<>(Arrays.asList(3, 2, 3, 1, 2, 6, -1, 5, 3, -1, 4, -1)));
+        BHLayout suits = new BHLayout(new ArrayList<>(Arrays.asList(3, 2, 3, 4, 5, 3, -1, 2, 6, -1, 1, -1)));
+        BHLayout piles = new BHLayout(new ArrayList<>(Arrays.asList(3, 2, 3, 1, 4, -1, 2, 6, -1, 5, 3, -1)));
+        BHLayout order = new BHLayout(new ArrayList<>(Arrays.asList(3, 2, 3, 1, 6, 2, -1, 5, 3, -1, 4, -1)));
+        assertNotEquals(first.stateKey(), suits.stateKey());
+        assertEquals(first.symmetryKey(), suits.symmetryKey());
+        assertEquals(first.symmetryKey(), piles.symmetryKey());
+        assertNotEquals(first.symmetryKey(), order.symmetryKey());
+
+        // The key follows the moves made, as the pile heights and hole card change
+        first.removeTopCard(0);
+        first.setHole(6);
+        assertNotEquals(first.symmetryKey(), piles.symmetryKey());
+        piles.removeTopCard(1);
+        piles.setHole(3);
+        assertEquals(first.symmetryKey(), piles.symmetryKey());
+
+        WHLayout worm = new WHLayout(suits, 2);
+        assertEquals(worm.symmetryKey(), new WHLayout(suits, 5).symmetryKey());
+        assertNotEquals(worm.symmetryKey(), new WHLayout(suits).symmetryKey());
+        assertNotEquals(worm.symmetryKey(), new WHLayout(suits, 3).symmetryKey());
+    }
+
+    /**
+     * Tests the rank and suit tables against working the rank out suit by suit, for several deck shapes
+     * and for cards outside the deck
+     */
+    @Test
+    public void rankTableTest() {
+        int[][] decks = {{13, 4}, {1, 52}, {52, 1}, {9, 3}, {5, 0}, {0, 5}, {-1, -2}};
+        for (int[] deck : decks) {
+            BHLayout layout = new BHLayout(deck[0], deck[1], 5);
+            for (int card = -2; card <= layout.cardsInDeck() + 2; card++) {
+                int expected = BHLayout.ERR;
+                if (card > 0 && card <= layout.cardsInDeck()) {
+                    for (int suit = deck[1]; suit >= 1; suit--) {
+                        if (card > deck[0] * (suit - 1)) {
+                            expected = card - deck[0] * (suit - 1);
+                            assertEquals(suit, layout.getCardSuit(card));
+                            break;
+                        }
+                    }
+                }
+                assertEquals(expected, layout.getCardRank(card));
+            }
+        }
+        layout = new BHLayout();
+        // Ace of spades is adjacent to both the two and the king of any suit
+        assertTrue(layout.isAdjacent(2, 1));
+        assertTrue(layout.isAdjacent(26, 1));
+        assertTrue(layout.isAdjacent(14, 26));
+        assertFalse(layout.isAdjacent(14, 1));
+        assertFalse(layout.isAdjacent(3, 1));
+        assertFalse(layout.isAdjacent(53, 1));
+        assertFalse(layout.isAdjacent(2, BHLayout.ERR));
+        // A deck with a single rank has every card adjacent to every other
+        assertTrue(new BHLayout(1, 52, 5).isAdjacent(7, 40));
+    }
+
+    /**
+     * Tests that the layout parser reads every layout the same as reading a list of integers,
+     * and gives the line and column of anything that is not a number
+     */
+    @Test
+    public void layoutParserTest() throws IOException {
+        for (String folder : new String[] {"BlackHole", "WormHole"}) {
+            File[] files = new File("."+s+"files"+s+folder).listFiles();
+            assertNotNull(files);
+            for (File file : files) {
+                BHLayout expected = new BHLayout(BHMain.readIntArray(file.getPath()));
+                BHLayout parsed = LayoutParser.read(file);
+                assertEquals(expected, parsed, file.getName());
+                assertEquals(expected.stateKey(), parsed.stateKey(), file.getName());
+                assertEquals(expected.cardsLeft(), parsed.cardsLeft(), file.getName());
+                assertEquals(expected.holeCard(), parsed.holeCard(), file.getName());
+                for (int p = 0; p < expected.numPiles(); p++) {
+                    assertEquals(expected.pileSize(p), parsed.pileSize(p), file.getName());
+                    for (int i = 0; i < expected.pileSize(p); i++) {
+                        assertEquals(expected.cardAt(p, i), parsed.cardAt(p, i), file.getName());
+                    }
+                }
+            }
+        }
+
+        // Missing piles are empty, and anything after the last pile is left unread
+        LayoutParser parser = new LayoutParser(new ByteArrayInputStream("13 4 3\r\n1\r\n+2 -1\t3 -1 -1 9".getBytes()));
+        BHLayout layout = parser.readLayout();
+        assertEquals(3, layout.numPiles());
+        assertEquals(2, layout.cardsLeft());
+        assertEquals(0, layout.pileSize(2));
+        assertTrue(parser.hasNext());
+        assertEquals(9, parser.nextInt());
+        assertEquals(3, parser.line());
+        assertEquals(15, parser.column());
+        assertFalse(parser.hasNext());
+        assertEquals(new BHLayout(new ArrayList<>()), new LayoutParser(new ByteArrayInputStream(new byte[0])).readLayout());
+
+        String[] malformed = {"13 4 17\n1\n2 x3 -1", "13 4 17\n1\n2 3a -1", "13 4 17 - 1", "13 4 99999999999"};
+        int[][] positions = {{3, 3}, {3, 4}, {1, 10}, {1, 6}};
+        for (int i = 0; i < malformed.length; i++) {
+            LayoutParser bad = new LayoutParser(new ByteArrayInputStream(malformed[i].getBytes()));
+            LayoutParser.MalformedLayoutException e = assertThrows(LayoutParser.MalformedLayoutException.class, bad::readLayout);
+            assertEquals(positions[i][0], e.line(), malformed[i]);
+            assertEquals(positions[i][1], e.column(), malformed[i]);
+        }
+    }
+
+    /**
+     * Tests that layouts written in the binary format are read back the same, in place, and that bad files are refused
+     */
+    @Test
+    public void binaryLayoutTest() throws IOException {
+        File binary = File.createTempFile("layout", ".bin");
+        binary.deleteOnExit();
+        File[] files = new File("."+s+"files"+s+"BlackHole").listFiles();
+        assertNotNull(files);
+        for (File file : files) {
+            BHLayout text = LayoutParser.read(file);
+            BinaryLayout.write(text, binary);
+            assertTrue(BinaryLayout.isBinary(binary));
+            assertFalse(BinaryLayout.isBinary(file));
+            BHLayout read = BinaryLayout.read(binary);
+            assertEquals(text, read, file.getName());
+            assertEquals(text.stateKey(), read.stateKey(), file.getName());
+            assertEquals(text.numRanks(), read.numRanks(), file.getName());
+            assertEquals(text.numSuits(), read.numSuits(), file.getName());
+            assertEquals(text.cardsLeft(), read.cardsLeft(), file.getName());
+            for (int p = 0; p < text.numPiles(); p++) {
+                assertEquals(text.pileSize(p), read.pileSize(p), file.getName());
+                for (int i = 0; i < text.pileSize(p); i++) {
+                    assertEquals(text.cardAt(p, i), read.cardAt(p, i), file.getName());
+                }
+            }
+        }
+
+        // The header gives 6 ints, the offsets 3 and the cards 2
+        layout = new BHLayout(new ArrayList<>(Arrays.asList(13, 4, 2, 1, 2, -1, 3, -1)));
+        BinaryLayout.write(layout, binary);
+        byte[] bytes = Files.readAllBytes(binary.toPath());
+        assertEquals(11 * Integer.BYTES, bytes.length);
+        BHLayout heap = new BHLayout(ByteBuffer.wrap(bytes));
+        assertEquals(layout, heap);
+        // Cards are read from the buffer, not copied out of it
+        ByteBuffer.wrap(bytes).putInt(10 * Integer.BYTES, 4);
+        assertEquals(4, heap.topCard(1));
+        // Moves on the layout leave the buffer alone
+        heap.removeTopCard(1);
+        assertEquals(4, ByteBuffer.wrap(bytes).getInt(10 * Integer.BYTES));
+
+        assertThrows(IllegalArgumentException.class, () -> new BHLayout(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1))));
+        byte[] offsets = bytes.clone();
+        ByteBuffer.wrap(offsets).putInt(7 * Integer.BYTES, 5);
+        assertThrows(IllegalArgumentException.class, () -> new BHLayout(ByteBuffer.wrap(offsets)));
+        byte[] version = bytes.clone();
+        ByteBuffer.wrap(version).putInt(Integer.BYTES, BinaryLayout.FORMAT + 1);
+        assertThrows(IllegalArgumentException.class, () -> new BHLayout(ByteBuffer.wrap(version)));
+        assertThrows(IOException.class, () -> BinaryLayout.read(new File(bhStandard)));
+    }
+
+    /**
+     * Tests that batch generation writes the layouts GEN deals, in seed order for each deck, as text and binary
+     */
+    @Test
+    public void batchGeneratorTest() throws IOException {
+        ArrayList<BatchGenerator.Deck> decks = BatchGenerator.decks("30,51", "13", "4, 5", "17,-1");
+        assertEquals(8, decks.size());
+        assertEquals(17, decks.get(1).piles());
+        // Few enough of these fit in a buffer that their seeds are split between threads
+        decks.add(new BatchGenerator.Deck(30000, 13, 2400, 40));
+        ArrayList<BHLayout> expected = new ArrayList<>();
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(text);
+        for (BatchGenerator.Deck deck : decks) {
+            for (int seed = -3; seed <= 12; seed++) {
+                layout = new BHLayout(deck.ranks(), deck.suits(), deck.piles());
+                layout.randomise(seed, deck.numCards());
+                layout.print(out);
+                expected.add(layout);
+            }
+        }
+        out.flush();
+
+        ByteArrayOutputStream generated = new ByteArrayOutputStream();
+        new BatchGenerator(false, 3).run(decks, -3, 12, Channels.newChannel(generated));
+        assertArrayEquals(text.toByteArray(), generated.toByteArray());
+
+        File binary = File.createTempFile("layouts", ".bin");
+        binary.deleteOnExit();
+        try (FileChannel channel = new FileOutputStream(binary).getChannel()) {
+            new BatchGenerator(true, 3).run(decks, -3, 12, channel);
+        }
+        ArrayList<BHLayout> read = BinaryLayout.readAll(binary);
+        assertEquals(expected.size(), read.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), read.get(i));
+            assertEquals(expected.get(i).stateKey(), read.get(i).stateKey());
+        }
+
+        // An empty range writes nothing
+        generated.reset();
+        new BatchGenerator(false, 2).run(decks, 5, 4, Channels.newChannel(generated));
+        assertEquals(0, generated.size());
+
+        assertThrows(IllegalArgumentException.class, () -> BatchGenerator.decks("51", "0", "4", "17"));
+        assertThrows(NumberFormatException.class, () -> BatchGenerator.decks("51", "13", "four", "17"));
+        byte[] bytes = Files.readAllBytes(binary.toPath());
+        Files.write(binary.toPath(), Arrays.copyOf(bytes, bytes.length - Integer.BYTES));
+        assertThrows(IOException.class, () -> BinaryLayout.readAll(binary));
+    }
+
 }
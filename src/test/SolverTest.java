@@ -2,18 +2,41 @@ package test;
 
 import common.*;
 
+import functions.InPlaceSolver;
+import functions.IterativeDeepeningSolver;
+import functions.ParallelSolver;
 import functions.RecursiveSolver;
+import functions.RestartSolver;
+import functions.SolutionCache;
 import functions.Solver;
+import functions.Tablebase;
+import functions.BatchSolver;
+import functions.BeamSolver;
+import functions.BestFirstSolver;
 import functions.Checker;
+import functions.Dominance;
+import functions.GoalSet;
+import functions.Precheck;
+import functions.Pruner;
 import layouts.BHLayout;
 
 import layouts.WHLayout;
 import org.junit.jupiter.api.Test;
+import types.Heuristic;
+import types.MoveOrdering;
 import types.Node;
 import types.Tuple;
 
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -292,5 +315,678 @@ public class SolverTest extends SuperTest {
         assertTrue(solver.run());
     }
 
+    /**
+     * Runs the in-place solver against the solver, which should visit the same nodes and find the same solutions
+     */
+    @Test
+    public void inPlaceSolverTest() {
+        layout = new BHLayout(BHMain.readIntArray(bhStandard));
+        Solver solver = new Solver(new BHLayout(layout), false, false, true);
+        InPlaceSolver inPlace = new InPlaceSolver(new BHLayout(layout), false, false, true);
+        assertEquals(solver.run(), inPlace.run());
+        assertEquals(solver.getNodesVisited(), inPlace.getNodesVisited());
+        assertEquals(solver.getSolution().moves(), inPlace.getSolution().moves());
+        Checker checker = new Checker(new BHLayout(layout), Checker.unwrapLog(inPlace.getSolution().moves()), false, true);
+        assertTrue(checker.run());
+
+        layout = new BHLayout(BHMain.readIntArray(bhComplete));
+        solver = new Solver(new BHLayout(layout), false, true, true);
+        inPlace = new InPlaceSolver(new BHLayout(layout), false, true, true);
+        solver.run();
+        inPlace.run();
+        assertEquals(solver.getNodesVisited(), inPlace.getNodesVisited());
+        assertEquals(solver.getSolutions().size(), inPlace.getSolutions().size());
+
+        assertFalse(new InPlaceSolver(new BHLayout(BHMain.readIntArray(bhImposs)), false, false, true).run());
+        assertTrue(new InPlaceSolver(new BHLayout(BHMain.readIntArray(bhPoss1)), false, false, true).run());
+    }
+
+    /**
+     * Runs the in-place solver against the solver on worm hole puzzles, checking every solution with the checker
+     */
+    @Test
+    public void inPlaceSolverWormHoleTest() {
+        whLayout = new WHLayout(new BHLayout(BHMain.readIntArray(whStandard)));
+        Solver solver = new Solver(new WHLayout(whLayout), true, false, true);
+        InPlaceSolver inPlace = new InPlaceSolver(new WHLayout(whLayout), true, false, true);
+        assertEquals(solver.run(), inPlace.run());
+        assertEquals(solver.getNodesVisited(), inPlace.getNodesVisited());
+        assertEquals(solver.getSolution().moves(), inPlace.getSolution().moves());
+
+        whLayout = new WHLayout(new BHLayout(BHMain.readIntArray(whComplete)));
+        solver = new Solver(new WHLayout(whLayout), true, true, true);
+        inPlace = new InPlaceSolver(new WHLayout(whLayout), true, true, true);
+        solver.run();
+        inPlace.run();
+        assertEquals(solver.getNodesVisited(), inPlace.getNodesVisited());
+        ArrayList<Node> solutions = inPlace.getSolutions();
+        assertEquals(solver.getSolutions().size(), solutions.size());
+        for (int i = 0; i < solutions.size(); i++) {
+            ArrayList<Integer> log = Checker.unwrapLog(solutions.get(i).moves());
+            Checker checker = new Checker(new WHLayout(whLayout), log, true, true);
+            assertTrue(checker.run());
+        }
+    }
+
+    /**
+     * Runs the parallel solver with several threads, checking its solutions with the checker
+     * A complete search finds the same set of solved states as the solver, whatever the order of the threads
+     */
+    @Test
+    public void parallelSolverTest() {
+        layout = new BHLayout(BHMain.readIntArray(bhStandard));
+        ParallelSolver parallel = new ParallelSolver(new BHLayout(layout), false, false, true, 4);
+        assertTrue(parallel.run());
+        Checker checker = new Checker(new BHLayout(layout), Checker.unwrapLog(parallel.getSolution().moves()), false, true);
+        assertTrue(checker.run());
+
+        layout = new BHLayout(BHMain.readIntArray(bhComplete));
+        Solver solver = new Solver(new BHLayout(layout), false, true, true);
+        solver.run();
+        parallel = new ParallelSolver(new BHLayout(layout), false, true, true, 4);
+        parallel.run();
+        assertEquals(solver.getSolutions().size(), parallel.getSolutions().size());
+
+        whLayout = new WHLayout(new BHLayout(BHMain.readIntArray(whComplete)));
+        solver = new Solver(new WHLayout(whLayout), true, true, true);
+        solver.run();
+        parallel = new ParallelSolver(new WHLayout(whLayout), true, true, true, 4);
+        parallel.run();
+        ArrayList<Node> solutions = parallel.getSolutions();
+        assertEquals(solver.getSolutions().size(), solutions.size());
+        for (int i = 0; i < solutions.size(); i++) {
+            checker = new Checker(new WHLayout(whLayout), Checker.unwrapLog(solutions.get(i).moves()), true, true);
+            assertTrue(checker.run());
+        }
+
+        assertFalse(new ParallelSolver(new BHLayout(BHMain.readIntArray(bhImposs)), false, false, true, 4).run());
+    }
+
+    /**
+     * Tests that the batch solver splits concatenated layouts and prints one line per layout in input order
+     */
+    @Test
+    public void batchSolverTest() {
+        ArrayList<Integer> integers = new ArrayList<>(BHMain.readIntArray(bhStandard));
+        integers.addAll(BHMain.readIntArray(bhImposs));
+        integers.addAll(BHMain.readIntArray(bhTrivial));
+        ArrayList<BatchSolver.Entry> deals = BatchSolver.split("-", integers);
+        assertEquals(3, deals.size());
+        assertEquals("-#2", deals.get(1).name());
+        assertEquals(new BHLayout(BHMain.readIntArray(bhImposs)), deals.get(1).layout());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new BatchSolver(false, 3).run(deals, new PrintStream(bytes));
+        String[] lines = bytes.toString().trim().split("\\R");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("-#1 SOLVED "));
+        assertTrue(lines[1].startsWith("-#2 UNSOLVABLE "));
+        assertTrue(lines[2].startsWith("-#3 SOLVED 1 "));
+
+        deals = BatchSolver.read(new File(bhStandard));
+        assertEquals(1, deals.size());
+        assertEquals(new File(bhStandard).getPath(), deals.get(0).name());
+
+        // A deal the solver fails on gets an error line and the rest of the batch is still solved
+        deals = BatchSolver.split("-", integers);
+        deals.add(1, new BatchSolver.Entry("broken", new BHLayout(new ArrayList<>(Arrays.asList(Integer.MAX_VALUE, 1, 1, 1, 2, -1)))));
+        bytes.reset();
+        new BatchSolver(false, 2).run(deals, new PrintStream(bytes));
+        lines = bytes.toString().trim().split("\\R");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("-#1 SOLVED "));
+        assertTrue(lines[1].startsWith("broken ERROR java.lang.NegativeArraySizeException"));
+        assertTrue(lines[2].startsWith("-#2 UNSOLVABLE "));
+        assertTrue(lines[3].startsWith("-#3 SOLVED 1 "));
+    }
+
+    /**
+     * Tests that reading a directory of layouts or a stream skips input that is not layouts
+     */
+    @Test
+    public void batchSolverReadTest() throws IOException {
+        File dir = Files.createTempDirectory("layouts").toFile();
+        dir.deleteOnExit();
+        File layout = new File(dir, "a.txt");
+        Files.copy(new File(bhStandard).toPath(), layout.toPath());
+        layout.deleteOnExit();
+        File notes = new File(dir, "b.txt");
+        Files.write(notes.toPath(), "Deals for the next run\n".getBytes());
+        notes.deleteOnExit();
+        ArrayList<BatchSolver.Entry> deals = BatchSolver.read(dir);
+        assertEquals(1, deals.size());
+        assertEquals(layout.getPath(), deals.get(0).name());
+        assertEquals(new BHLayout(BHMain.readIntArray(bhStandard)), deals.get(0).layout());
+
+        byte[] standard = Files.readAllBytes(new File(bhStandard).toPath());
+        deals = BatchSolver.read("-", new ByteArrayInputStream((new String(standard) + new String(standard)).getBytes()));
+        assertEquals(2, deals.size());
+        assertEquals("-#2", deals.get(1).name());
+        assertEquals(new BHLayout(BHMain.readIntArray(bhStandard)), deals.get(1).layout());
+        assertTrue(BatchSolver.read("-", new ByteArrayInputStream("Deals for the next run\n".getBytes())).isEmpty());
+    }
+
+    /**
+     * Runs every move ordering on solvable and unsolvable layouts, checking each solution with the checker
+     * The in-place solver should try moves in the same order as the solver for every ordering
+     */
+    @Test
+    public void moveOrderingTest() {
+        for (String name : MoveOrdering.NAMES) {
+            layout = new BHLayout(BHMain.readIntArray(bhStandard));
+            Solver solver = new Solver(new BHLayout(layout), false, false, true);
+            solver.setOrdering(MoveOrdering.create(name));
+            InPlaceSolver inPlace = new InPlaceSolver(new BHLayout(layout), false, false, true);
+            inPlace.setOrdering(MoveOrdering.create(name));
+            assertTrue(solver.run());
+            assertTrue(inPlace.run());
+            assertEquals(solver.getNodesVisited(), inPlace.getNodesVisited());
+            Checker checker = new Checker(new BHLayout(layout), Checker.unwrapLog(solver.getSolution().moves()), false, true);
+            assertTrue(checker.run());
+
+            whLayout = new WHLayout(new BHLayout(BHMain.readIntArray(whStandard)));
+            solver = new Solver(new WHLayout(whLayout), true, false, true);
+            solver.setOrdering(MoveOrdering.create(name));
+            inPlace = new InPlaceSolver(new WHLayout(whLayout), true, false, true);
+            inPlace.setOrdering(MoveOrdering.create(name));
+            assertTrue(solver.run());
+            assertTrue(inPlace.run());
+            assertEquals(solver.getNodesVisited(), inPlace.getNodesVisited());
+            checker = new Checker(new WHLayout(whLayout), Checker.unwrapLog(solver.getSolution().moves()), true, true);
+            assertTrue(checker.run());
+
+            solver = new Solver(new BHLayout(BHMain.readIntArray(bhImposs)), false, false, true);
+            solver.setOrdering(MoveOrdering.create(name));
+            assertFalse(solver.run());
+        }
+        assertThrows(IllegalArgumentException.class, () -> MoveOrdering.create("NONE"));
+    }
+
+    /**
+     * Tests that pruning dead states never changes whether a layout is solved and never visits more nodes
+     */
+    @Test
+    public void pruningTest() {
+        layout = new BHLayout(BHMain.readIntArray(bhImposs));
+        assertTrue(new Pruner().isDead(layout, false));
+        layout = new BHLayout(BHMain.readIntArray(bhStandard));
+        assertFalse(new Pruner().isDead(layout, false));
+
+        for (String file : new String[] {bhStandard, bhComplete, bhImposs, bhImposs2, bhImposs3}) {
+            layout = new BHLayout(BHMain.readIntArray(file));
+            Solver solver = new Solver(new BHLayout(layout), false, false, true);
+            Solver pruned = new Solver(new BHLayout(layout), false, false, true);
+            pruned.setPruning(true);
+            RecursiveSolver recursive = new RecursiveSolver(new BHLayout(layout), false, false, true);
+            recursive.setPruning(true);
+            InPlaceSolver inPlace = new InPlaceSolver(new BHLayout(layout), false, false, true);
+            inPlace.setPruning(true);
+            boolean solved = solver.run();
+            assertEquals(solved, pruned.run());
+            assertEquals(solved, recursive.run());
+            assertEquals(solved, inPlace.run());
+            assertTrue(pruned.getNodesVisited() <= solver.getNodesVisited());
+            assertEquals(pruned.getNodesVisited(), inPlace.getNodesVisited());
+            if (solved) {
+                Checker checker = new Checker(new BHLayout(layout), Checker.unwrapLog(pruned.getSolution().moves()), false, true);
+                assertTrue(checker.run());
+            }
+        }
+
+        whLayout = new WHLayout(new BHLayout(BHMain.readIntArray(whStandard)));
+        Solver solver = new Solver(new WHLayout(whLayout), true, false, true);
+        solver.setPruning(true);
+        assertTrue(solver.run());
+        Checker checker = new Checker(new WHLayout(whLayout), Checker.unwrapLog(solver.getSolution().moves()), true, true);
+        assertTrue(checker.run());
+        assertFalse(new Pruner().isDead(whLayout, true));
+    }
+
+    /**
+     * Tests that the precheck rejects layouts for the right reason, and only layouts the search cannot solve
+     */
+    @Test
+    public void precheckTest() {
+        assertEquals(Precheck.Rule.NONE, Precheck.run(new BHLayout(BHMain.readIntArray(bhStandard)), false));
+        assertEquals(Precheck.Rule.NONE, Precheck.run(new WHLayout(new BHLayout(BHMain.readIntArray(whStandard))), true));
+        assertEquals(Precheck.Rule.NO_FIRST_MOVE, Precheck.run(new BHLayout(BHMain.readIntArray(bhImposs4)), false));
+        assertEquals(Precheck.Rule.PARITY, Precheck.run(new BHLayout(BHMain.readIntArray(bhImposs2)), false));
+        assertEquals(Precheck.Rule.ORPHAN, Precheck.run(new BHLayout(BHMain.readIntArray(bhImposs)), false));
+        // 12 and 6 can only be played straight after 11
+        layout = new BHLayout(6, 3, 3);
+        layout.randomise(14, 9);
+        assertEquals(Precheck.Rule.FORCED, Precheck.run(layout, false));
+        layout = new BHLayout(6, 3, 3);
+        layout.randomise(64, 9);
+        assertEquals(Precheck.Rule.CYCLE, Precheck.run(layout, false));
+        assertFalse(new Solver(new BHLayout(layout), false, true).run());
+
+        Solver solver = new Solver(new BHLayout(BHMain.readIntArray(bhImposs2)), false, false, true);
+        solver.setPrecheck(true);
+        assertFalse(solver.run());
+        assertEquals(Precheck.Rule.PARITY, solver.getPrecheckRule());
+        assertEquals(Solver.Status.UNSOLVABLE, solver.getStatus());
+        assertEquals(BHLayout.ZERO, solver.getNodesVisited());
+
+        InPlaceSolver inPlace = new InPlaceSolver(new BHLayout(BHMain.readIntArray(bhStandard)), false, false, true);
+        inPlace.setPrecheck(true);
+        assertTrue(inPlace.run());
+        assertEquals(Precheck.Rule.NONE, inPlace.getPrecheckRule());
+
+        BatchSolver batch = new BatchSolver(false, 1);
+        String line = batch.solve(new BatchSolver.Entry("imposs", new BHLayout(BHMain.readIntArray(bhImposs))));
+        assertTrue(line.startsWith("imposs UNSOLVABLE 0 "));
+        assertTrue(line.endsWith(" ORPHAN"));
+    }
+
+    /**
+     * Tests the iterative deepening solver finds the same answers as the solver, with and without its filter
+     * A black hole game is finished in one iteration which visits the same nodes as the in-place solver
+     */
+    @Test
+    public void iterativeDeepeningTest() {
+        layout = new BHLayout(BHMain.readIntArray(bhStandard));
+        IterativeDeepeningSolver solver = new IterativeDeepeningSolver(new BHLayout(layout), false, false, true);
+        InPlaceSolver inPlace = new InPlaceSolver(new BHLayout(layout), false, false, true);
+        assertTrue(solver.run());
+        assertTrue(inPlace.run());
+        assertEquals(inPlace.getNodesVisited(), solver.getNodesVisited());
+        assertEquals(BHLayout.ONE, solver.getLimits().size());
+        assertEquals(layout.cardsLeft(), solver.getLimit());
+        Checker checker = new Checker(new BHLayout(layout), Checker.unwrapLog(solver.getSolution().moves()), false, true);
+        assertTrue(checker.run());
+
+        whLayout = new WHLayout(new BHLayout(BHMain.readIntArray(whStandard)));
+        solver = new IterativeDeepeningSolver(new WHLayout(whLayout), true, false, true);
+        assertTrue(solver.run());
+        checker = new Checker(new WHLayout(whLayout), Checker.unwrapLog(solver.getSolution().moves()), true, true);
+        assertTrue(checker.run());
+
+        solver = new IterativeDeepeningSolver(new BHLayout(BHMain.readIntArray(bhImposs2)), false, false, true);
+        assertFalse(solver.run());
+
+        // Needs one card parked, so a second iteration, and is found again without the filter
+        layout = new BHLayout(6, 4, 5);
+        layout.randomise(3, 23);
+        for (boolean transposition : new boolean[] {true, false}) {
+            solver = new IterativeDeepeningSolver(new WHLayout(layout), true, false, true);
+            solver.setTransposition(transposition);
+            assertTrue(solver.run());
+            assertEquals(BHLayout.PAIR, solver.getIterationNodes().size());
+            assertEquals(layout.cardsLeft() + BHLayout.PAIR, solver.getLimit());
+            checker = new Checker(new WHLayout(layout), Checker.unwrapLog(solver.getSolution().moves()), true, true);
+            assertTrue(checker.run());
+        }
+
+        // States rejected by the pruner are stored as searched completely, so they never count as cut short
+        layout = new BHLayout(8, 4, 6);
+        layout.randomise(0, 31);
+        ArrayList<Long> dead = new ArrayList<>();
+        solver = new IterativeDeepeningSolver(new WHLayout(layout), true, false, true) {
+            @Override
+            protected boolean isDead(BHLayout state) {
+                boolean isDead = super.isDead(state);
+                if (isDead) {
+                    dead.add(filterKey(state));
+                    assertEquals(Integer.MAX_VALUE, filter.probe(filterKey(state)));
+                }
+                return isDead;
+            }
+        };
+        solver.setPruning(true);
+        assertTrue(solver.run());
+        assertFalse(dead.isEmpty());
+    }
+
+    /**
+     * Tests the best-first solver with each heuristic, checking each solution with the checker
+     * Ranking states by cards left alone expands them in the same order as the solver
+     */
+    @Test
+    public void bestFirstSolverTest() {
+        layout = new BHLayout(BHMain.readIntArray(bhStandard));
+        whLayout = new WHLayout(new BHLayout(BHMain.readIntArray(whStandard)));
+        for (String name : Heuristic.NAMES) {
+            BestFirstSolver solver = new BestFirstSolver(new BHLayout(layout), false, false, true, Heuristic.create(name), BestFirstSolver.DEFAULT_MAX_FRONTIER);
+            assertTrue(solver.run());
+            assertEquals(Solver.Status.SOLVED, solver.getStatus());
+            Checker checker = new Checker(new BHLayout(layout), Checker.unwrapLog(solver.getSolution().moves()), false, true);
+            assertTrue(checker.run());
+
+            solver = new BestFirstSolver(new WHLayout(whLayout), true, false, true, Heuristic.create(name), BestFirstSolver.DEFAULT_MAX_FRONTIER);
+            assertTrue(solver.run());
+            checker = new Checker(new WHLayout(whLayout), Checker.unwrapLog(solver.getSolution().moves()), true, true);
+            assertTrue(checker.run());
+
+            solver = new BestFirstSolver(new BHLayout(BHMain.readIntArray(bhImposs2)), false, false, true, Heuristic.create(name), BestFirstSolver.DEFAULT_MAX_FRONTIER);
+            assertFalse(solver.run());
+            assertEquals(Solver.Status.UNSOLVABLE, solver.getStatus());
+        }
+        assertThrows(IllegalArgumentException.class, () -> Heuristic.create("NONE"));
+
+        Solver solver = new Solver(new BHLayout(layout), false, false, true);
+        BestFirstSolver cards = new BestFirstSolver(new BHLayout(layout), false, false, true, Heuristic.create("CARDS"), BestFirstSolver.DEFAULT_MAX_FRONTIER);
+        solver.run();
+        cards.run();
+        assertEquals(solver.getNodesVisited(), cards.getNodesVisited());
+
+        // Dropping states means a failed search proves nothing
+        BestFirstSolver bounded = new BestFirstSolver(new BHLayout(BHMain.readIntArray(bhImposs2)), false, false, true, Heuristic.create("STUCK"), 2);
+        assertFalse(bounded.run());
+        assertTrue(bounded.getDropped() > 0);
+        assertEquals(Solver.Status.UNKNOWN, bounded.getStatus());
+    }
+
+    /**
+     * Tests that the beam solver finds checked solutions, and only reports UNSOLVABLE if it never dropped a state
+     */
+    @Test
+    public void beamSolverTest() {
+        layout = new BHLayout(BHMain.readIntArray(bhStandard));
+        whLayout = new WHLayout(new BHLayout(BHMain.readIntArray(whStandard)));
+        // The default beam gets through the black hole deal
+        BeamSolver solver = new BeamSolver(new BHLayout(layout), false, true);
+        assertTrue(solver.run());
+        assertEquals(Solver.Status.SOLVED, solver.getStatus());
+        Checker checker = new Checker(new BHLayout(layout), Checker.unwrapLog(solver.getSolution().moves()), false, true);
+        assertTrue(checker.run());
+
+        solver = new BeamSolver(new WHLayout(whLayout), true, true, Heuristic.create("STUCK"), 1024);
+        assertTrue(solver.run());
+        checker = new Checker(new WHLayout(whLayout), Checker.unwrapLog(solver.getSolution().moves()), true, true);
+        assertTrue(checker.run());
+
+        // A beam wide enough to hold every state searches exhaustively
+        BeamSolver wide = new BeamSolver(new BHLayout(BHMain.readIntArray(bhImposs2)), false, true, Heuristic.create("CARDS"), Integer.MAX_VALUE);
+        assertFalse(wide.run());
+        assertEquals(0, wide.getDropped());
+        assertEquals(Solver.Status.UNSOLVABLE, wide.getStatus());
+
+        // Once a state is dropped a failed search proves nothing
+        BeamSolver narrow = new BeamSolver(new BHLayout(BHMain.readIntArray(bhImposs2)), false, true, Heuristic.create("CARDS"), 1);
+        assertFalse(narrow.run());
+        assertTrue(narrow.getDropped() > 0);
+        assertEquals(Solver.Status.UNKNOWN, narrow.getStatus());
+    }
+
+    /**
+     * Tests the Luby cutoffs, that restarts find checked solutions and prove unsolvable layouts,
+     * and that a run is repeated exactly for the same seed and number of threads
+     */
+    @Test
+    public void restartSolverTest() {
+        long[] luby = {1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, 1};
+        for (int i = 0; i < luby.length; i++) {
+            assertEquals(luby[i], RestartSolver.luby(i + 1));
+        }
+
+        layout = new BHLayout(BHMain.readIntArray(bhStandard));
+        whLayout = new WHLayout(new BHLayout(BHMain.readIntArray(whStandard)));
+        for (int threads = 1; threads <= 4; threads *= 2) {
+            RestartSolver solver = new RestartSolver(new BHLayout(layout), false, true, RestartSolver.DEFAULT_SEED, threads);
+            assertTrue(solver.run());
+            Checker checker = new Checker(new BHLayout(layout), Checker.unwrapLog(solver.getSolution().moves()), false, true);
+            assertTrue(checker.run());
+            RestartSolver again = new RestartSolver(new BHLayout(layout), false, true, RestartSolver.DEFAULT_SEED, threads);
+            again.run();
+            assertEquals(solver.getNodesVisited(), again.getNodesVisited());
+            assertEquals(solver.getSolution().moves(), again.getSolution().moves());
+
+            solver = new RestartSolver(new WHLayout(whLayout), true, true, RestartSolver.DEFAULT_SEED, threads);
+            assertTrue(solver.run());
+            checker = new Checker(new WHLayout(whLayout), Checker.unwrapLog(solver.getSolution().moves()), true, true);
+            assertTrue(checker.run());
+
+            solver = new RestartSolver(new BHLayout(BHMain.readIntArray(bhImposs2)), false, true, RestartSolver.DEFAULT_SEED, threads);
+            assertFalse(solver.run());
+            assertEquals(Solver.Status.UNSOLVABLE, solver.getStatus());
+            assertTrue(solver.getDeadStates() > 0);
+        }
+    }
+
+    /**
+     * Tests that filtering by symmetry key keeps solutions valid and unsolvable layouts unsolvable, with no more
+     * nodes than filtering by state key, and that the in-place search still matches Solver node for node
+     */
+    @Test
+    public void symmetryTest() {
+        layout = new BHLayout(BHMain.readIntArray(bhStandard));
+        whLayout = new WHLayout(new BHLayout(BHMain.readIntArray(whStandard)));
+        Solver solver = new Solver(new BHLayout(layout), false, true);
+        solver.setSymmetry(true);
+        assertTrue(solver.run());
+        Checker checker = new Checker(new BHLayout(layout), Checker.unwrapLog(solver.getSolution().moves()), false, true);
+        assertTrue(checker.run());
+        Solver plain = new Solver(new BHLayout(layout), false, true);
+        plain.run();
+        assertTrue(solver.getNodesVisited() <= plain.getNodesVisited());
+        InPlaceSolver inPlace = new InPlaceSolver(new BHLayout(layout), false, true);
+        inPlace.setSymmetry(true);
+        inPlace.run();
+        assertEquals(solver.getNodesVisited(), inPlace.getNodesVisited());
+
+        solver = new Solver(new WHLayout(whLayout), true, true);
+        solver.setSymmetry(true);
+        assertTrue(solver.run());
+        checker = new Checker(new WHLayout(whLayout), Checker.unwrapLog(solver.getSolution().moves()), true, true);
+        assertTrue(checker.run());
+
+        solver = new Solver(new BHLayout(BHMain.readIntArray(bhImposs2)), false, true);
+        solver.setSymmetry(true);
+        assertFalse(solver.run());
+        assertEquals(Solver.Status.UNSOLVABLE, solver.getStatus());
+    }
+
+    /**
+     * Tests each dominance rule, and all of them together, against the search without them on every worm hole layout
+     * in the files, along with a layout that needs a playable card to be parked
+     */
+    @Test
+    public void dominanceTest() {
+        File[] files = new File("."+s+"files"+s+"WormHole").listFiles();
+        assertNotNull(files);
+        Arrays.sort(files);
+        Dominance.Rule[][] sets = {{Dominance.Rule.UNPARK}, {Dominance.Rule.PARK}, {Dominance.Rule.FOLLOW}, Dominance.Rule.values()};
+        for (File file : files) {
+            if (file.getName().contains("node")) {
+                continue;
+            }
+            BHLayout deal = new BHLayout(BHMain.readIntArray(file.getPath()));
+            Solver exhaustive = new Solver(new WHLayout(deal), true, true);
+            exhaustive.run();
+            for (Dominance.Rule[] rules : sets) {
+                Solver solver = new Solver(new WHLayout(deal), true, true);
+                solver.setDominance(rules);
+                solver.run();
+                assertEquals(exhaustive.getStatus(), solver.getStatus(), file.getName());
+                if (solver.getSolution() != null) {
+                    Checker checker = new Checker(new WHLayout(deal), Checker.unwrapLog(solver.getSolution().moves()), true, true);
+                    assertTrue(checker.run(), file.getName());
+                }
+                // The in-place search skips the same moves
+                InPlaceSolver inPlace = new InPlaceSolver(new WHLayout(deal), true, true);
+                inPlace.setDominance(rules);
+                inPlace.run();
+                assertEquals(solver.getNodesVisited(), inPlace.getNodesVisited(), file.getName());
+            }
+        }
+
+        // Hole card 5, a 6 on a 4 and a 5 on a 7: the 6 has to be parked even though it could be played
+        BHLayout playable = new BHLayout(new ArrayList<>(Arrays.asList(13, 2, 2, 5, 4, 6, -1, 7, 18, -1)));
+        Solver solver = new Solver(new WHLayout(playable), true, true);
+        solver.setDominance(Dominance.Rule.values());
+        assertTrue(solver.run());
+
+        // Parking the 6 uncovers the 4, which can go onto the 5, but parking the 18 uncovers the 7, which cannot
+        WHLayout state = new WHLayout(playable);
+        assertTrue(Dominance.uncovers(state, 0));
+        assertFalse(Dominance.uncovers(state, 1));
+        state.setWormHole(6);
+        state.removeTopCard(0);
+        assertEquals(0, Dominance.parkedFrom(state));
+        state.setHole(4);
+        state.removeTopCard(0);
+        assertEquals(BHLayout.ERR, Dominance.parkedFrom(state));
+    }
+
+    /**
+     * Tests that the solution cache answers layouts stored by an earlier run and ignores damaged entries
+     */
+    @Test
+    public void solutionCacheTest() throws IOException {
+        File file = File.createTempFile("solutions", ".cache");
+        file.deleteOnExit();
+        BHLayout standard = new BHLayout(BHMain.readIntArray(bhStandard));
+        BHLayout impossible = new BHLayout(BHMain.readIntArray(bhImposs2));
+        Solver solver = new Solver(standard, false, true);
+        Solver none = new Solver(impossible, false, true);
+
+        try (SolutionCache cache = new SolutionCache(file, 16)) {
+            assertNull(cache.lookup(standard, false));
+            assertEquals(1, cache.misses());
+            none.run();
+            assertTrue(cache.store(impossible, false, none));
+            // A solution of another layout is stored but never answered
+            solver.run();
+            assertTrue(cache.store(new WHLayout(impossible), true, solver));
+            assertTrue(cache.store(standard, false, solver));
+        }
+
+        // A later run answers from the file
+        try (SolutionCache cache = new SolutionCache(file)) {
+            SolutionCache.Entry hit = cache.lookup(standard, false);
+            assertNotNull(hit);
+            assertEquals(Solver.Status.SOLVED, hit.status());
+            assertEquals(Checker.unwrapLog(solver.getSolution().moves()), hit.moves());
+            assertEquals(solver.getNodesVisited(), hit.nodes());
+            assertEquals(Solver.Status.UNSOLVABLE, cache.lookup(impossible, false).status());
+            assertNull(cache.lookup(new WHLayout(impossible), true));
+            assertNull(cache.lookup(new WHLayout(standard), true));
+            assertEquals(2, cache.hits());
+            assertEquals(1, cache.rejected());
+        }
+
+        // Damaging the last entry stored makes it a miss until it is stored again
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            // The header ends with the position after the last entry
+            raw.seek(16);
+            long end = raw.readLong();
+            raw.seek(end - 1);
+            int last = raw.read();
+            raw.seek(end - 1);
+            raw.write(last ^ 1);
+        }
+        try (SolutionCache cache = new SolutionCache(file)) {
+            assertNull(cache.lookup(standard, false));
+            assertEquals(1, cache.rejected());
+            assertTrue(cache.store(standard, false, solver));
+            assertEquals(Solver.Status.SOLVED, cache.lookup(standard, false).status());
+        }
+
+        // Any other file is refused
+        File text = File.createTempFile("solutions", ".txt");
+        text.deleteOnExit();
+        java.nio.file.Files.write(text.toPath(), "13 4 17 0 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15 16".getBytes());
+        assertThrows(IOException.class, () -> new SolutionCache(text).close());
+    }
+
+    /**
+     * Tests that the solvers finish states with few cards left from the tablebase and agree with a full search
+     */
+    @Test
+    public void tablebaseTest() throws IOException {
+        File file = File.createTempFile("endgames", ".tb");
+        file.deleteOnExit();
+        assertEquals(143, Tablebase.generate(file, 2, 13, 4));
+        Tablebase tablebase = new Tablebase(file);
+        assertEquals(2, tablebase.cards());
+        assertEquals(143, tablebase.size());
+
+        // Hole card 5 with a 6 on a 7, and with a 7 on a 6
+        BHLayout solvable = new BHLayout(new ArrayList<>(Arrays.asList(13, 4, 1, 5, 7, 6, -1)));
+        BHLayout stuck = new BHLayout(new ArrayList<>(Arrays.asList(13, 4, 1, 5, 6, 7, -1)));
+        assertTrue(tablebase.covers(solvable));
+        assertTrue(tablebase.solvable(solvable));
+        assertFalse(tablebase.solvable(stuck));
+        // Pile order and suits do not matter
+        BHLayout moved = new BHLayout(new ArrayList<>(Arrays.asList(13, 4, 2, 5, -1, 20, 19, -1)));
+        assertEquals(Tablebase.key(solvable), Tablebase.key(moved));
+
+        file = File.createTempFile("endgames", ".tb");
+        file.deleteOnExit();
+        Tablebase.generate(file, 6, 6, 4);
+        tablebase = new Tablebase(file);
+        assertFalse(tablebase.covers(new BHLayout(BHMain.readIntArray(bhStandard))));
+        for (int seed = 1; seed <= 40; seed++) {
+            BHLayout deal = new BHLayout(6, 4, 5);
+            deal.randomise(seed, 23);
+            Solver search = new Solver(new BHLayout(deal), false, true);
+            search.run();
+            Solver solver = new Solver(new BHLayout(deal), false, true);
+            solver.setTablebase(tablebase);
+            solver.run();
+            RecursiveSolver recursive = new RecursiveSolver(new BHLayout(deal), false, false, true);
+            recursive.setTablebase(tablebase);
+            recursive.run();
+            assertEquals(search.getStatus(), solver.getStatus(), "seed " + seed);
+            assertEquals(search.getStatus(), recursive.getStatus(), "seed " + seed);
+            assertTrue(solver.getNodesVisited() <= search.getNodesVisited(), "seed " + seed);
+            if (solver.getStatus() == Solver.Status.SOLVED) {
+                assertTrue(new Checker(new BHLayout(deal), Checker.unwrapLog(solver.getSolution().moves()), false, true).run());
+                assertTrue(new Checker(new BHLayout(deal), Checker.unwrapLog(recursive.getSolution().moves()), false, true).run());
+            }
+        }
+        Solver impossible = new Solver(new BHLayout(BHMain.readIntArray(bhImposs2)), false, true);
+        impossible.setTablebase(tablebase);
+        assertFalse(impossible.run());
+        assertEquals(Solver.Status.UNSOLVABLE, impossible.getStatus());
+    }
+
+    /**
+     * Tests that skipping states outside the goal set finds the same outcome on every black hole layout
+     */
+    @Test
+    public void goalSetTest() {
+        File[] files = new File("."+s+"files"+s+"BlackHole").listFiles();
+        assertNotNull(files);
+        Arrays.sort(files);
+        for (File file : files) {
+            BHLayout deal = new BHLayout(BHMain.readIntArray(file.getPath()));
+            Solver search = new Solver(new BHLayout(deal), false, true);
+            search.run();
+            Solver solver = new Solver(new BHLayout(deal), false, true);
+            solver.setGoalBudget(100);
+            solver.run();
+            assertEquals(search.getStatus(), solver.getStatus(), file.getName());
+            assertTrue(solver.getNodesVisited() <= search.getNodesVisited(), file.getName());
+            if (solver.getStatus() == Solver.Status.SOLVED) {
+                Checker checker = new Checker(new BHLayout(deal), Checker.unwrapLog(solver.getSolution().moves()), false, true);
+                assertTrue(checker.run(), file.getName());
+            }
+            // Reaching the starting layout backwards means there is a solution
+            GoalSet goals = solver.getGoals();
+            assertNotNull(goals, file.getName());
+            if (goals.reachesStart()) {
+                assertEquals(Solver.Status.SOLVED, solver.getStatus(), file.getName());
+            }
+        }
+
+        // Small layouts are covered all the way back to the start
+        GoalSet impossible = new GoalSet(new BHLayout(BHMain.readIntArray(bhImposs2)), GoalSet.DEFAULT_BUDGET);
+        assertEquals(21, impossible.depth());
+        assertFalse(impossible.reachesStart());
+        assertFalse(impossible.reaches(new BHLayout(BHMain.readIntArray(bhImposs2))));
+        assertEquals(1, impossible.eliminated());
+
+        BHLayout solvable = new BHLayout(BHMain.readIntArray("."+s+"files"+s+"BlackHole"+s+"1-23-6-4-5.txt"));
+        GoalSet goals = new GoalSet(solvable, GoalSet.DEFAULT_BUDGET);
+        assertTrue(goals.reachesStart());
+        assertTrue(goals.reaches(solvable));
+
+        // Without any budget no level is finished past the end states
+        goals = new GoalSet(solvable, 0);
+        assertEquals(0, goals.depth());
+        assertTrue(goals.reaches(solvable));
+    }
 
 }
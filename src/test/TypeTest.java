@@ -1,11 +1,24 @@
 package test;
 
 import layouts.BHLayout;
+import layouts.Zobrist;
 import org.junit.jupiter.api.Test;
+import types.BeamFrontier;
+import types.ConcurrentStateSet;
+import types.Frontier;
+import types.MoveLog;
 import types.Node;
+import types.PriorityFrontier;
+import types.QueueFrontier;
+import types.StackFrontier;
+import types.TranspositionTable;
 import types.Tuple;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -92,4 +105,271 @@ public class TypeTest extends SuperTest {
         assertEquals(tuples, newNode.copyLog());
     }
 
+    /**
+     * Tests that the transposition table remembers the keys it is given
+     */
+    @Test
+    public void transpositionTableTest() {
+        TranspositionTable table = new TranspositionTable();
+        assertFalse(table.visit(layout.stateKey(), 10));
+        assertTrue(table.visit(layout.stateKey(), 10));
+        assertEquals(10, table.probe(layout.stateKey()));
+        assertEquals(TranspositionTable.MISSING, table.probe(layout.stateKey() + 1));
+        assertFalse(table.visit(0L, 1));
+        assertTrue(table.visit(0L, 1));
+        for (long key = 1; key <= 100000; key++) {
+            table.store(Zobrist.mix(key), 1);
+        }
+        assertEquals(100002, table.size());
+        assertEquals(0, table.evictions());
+    }
+
+    /**
+     * Tests that a full table stays within its budget and keeps the deepest entries when depth-preferred
+     */
+    @Test
+    public void transpositionTableBudgetTest() {
+        long budget = 1 << 16;
+        TranspositionTable table = new TranspositionTable(budget, TranspositionTable.Replacement.DEPTH_PREFERRED);
+        table.store(42L, Integer.MAX_VALUE);
+        for (long key = 1; key <= 100000; key++) {
+            table.store(Zobrist.mix(key), (int) (key % 50));
+        }
+        assertTrue(table.bytesUsed() <= budget);
+        assertTrue(table.evictions() > 0);
+        assertEquals(Integer.MAX_VALUE, table.probe(42L));
+
+        table = new TranspositionTable(budget, TranspositionTable.Replacement.ALWAYS_REPLACE);
+        for (long key = 1; key <= 100000; key++) {
+            table.store(Zobrist.mix(key), 1);
+        }
+        assertTrue(table.bytesUsed() <= budget);
+        // The most recent key always takes its home slot
+        assertEquals(1, table.probe(Zobrist.mix(100000)));
+    }
+
+    /**
+     * Tests the order in which each frontier gives back its nodes
+     */
+    @Test
+    public void frontierTest() {
+        Node[] nodes = new Node[200];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new Node(layout, new ArrayList<>());
+        }
+        Frontier stack = new StackFrontier();
+        Frontier queue = new QueueFrontier();
+        for (Node node : nodes) {
+            stack.push(node);
+            queue.push(node);
+        }
+        assertEquals(nodes.length, stack.size());
+        assertSame(nodes[nodes.length - 1], stack.toList().get(0));
+        assertSame(nodes[0], queue.toList().get(0));
+        for (int i = 0; i < nodes.length; i++) {
+            assertSame(nodes[nodes.length - 1 - i], stack.pop());
+            assertSame(nodes[i], queue.pop());
+        }
+        assertTrue(stack.isEmpty());
+        assertNull(stack.pop());
+        assertNull(queue.pop());
+
+        // Nodes with the same priority come back last in, first out
+        PriorityFrontier priority = new PriorityFrontier(Node::depth);
+        ArrayList<Tuple> log = new ArrayList<>();
+        log.add(new Tuple(0, 2));
+        Node deeper = new Node(layout, log);
+        priority.push(deeper);
+        priority.push(nodes[0]);
+        priority.push(nodes[1]);
+        assertEquals(0, priority.peekPriority());
+        assertSame(nodes[1], priority.toList().get(0));
+        assertSame(nodes[1], priority.pop());
+        assertSame(nodes[0], priority.pop());
+        assertSame(deeper, priority.pop());
+        assertNull(priority.pop());
+    }
+
+    /**
+     * Tests that a bounded priority frontier keeps its best nodes and counts the ones it drops
+     */
+    @Test
+    public void boundedFrontierTest() {
+        PriorityFrontier priority = new PriorityFrontier(Node::depth, 8);
+        ArrayList<Tuple> log = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            priority.push(new Node(layout, new ArrayList<>(log)));
+            log.add(new Tuple(0, i));
+            assertTrue(priority.size() <= 8);
+        }
+        assertEquals(20, priority.size() + priority.dropped());
+        // The shallowest nodes were kept, and come back in order
+        int depth = priority.pop().depth();
+        assertEquals(0, depth);
+        while (!priority.isEmpty()) {
+            int next = priority.pop().depth();
+            assertTrue(next > depth);
+            depth = next;
+        }
+        assertEquals(0, new PriorityFrontier(Node::depth).dropped());
+    }
+
+    /**
+     * Tests that a beam frontier keeps the best nodes of each level, one copy of each state, and pops level by level
+     */
+    @Test
+    public void beamFrontierTest() {
+        BeamFrontier beam = new BeamFrontier(node -> node.layout().holeCard(), 3);
+        for (int card = 1; card <= 6; card++) {
+            BHLayout child = new BHLayout(layout);
+            child.setHole(card);
+            beam.push(new Node(child, new ArrayList<>()));
+            // A copy of a state already in the level is not a drop
+            beam.push(new Node(new BHLayout(child), new ArrayList<>()));
+        }
+        // Looking at the frontier leaves it and the drop count as they were
+        assertEquals(3, beam.toList().size());
+        assertEquals(1, beam.toList().get(0).layout().holeCard());
+        assertEquals(0, beam.dropped());
+        assertEquals(0, beam.levels());
+        assertEquals(3, beam.size());
+        assertEquals(1, beam.pop().layout().holeCard());
+        assertEquals(1, beam.levels());
+        assertEquals(3, beam.dropped());
+
+        // Nodes pushed now wait for the current level to be used up
+        BHLayout deeper = new BHLayout(layout);
+        deeper.setHole(7);
+        beam.push(new Node(deeper, new ArrayList<>()));
+        assertEquals(2, beam.pop().layout().holeCard());
+        assertEquals(3, beam.pop().layout().holeCard());
+        assertEquals(7, beam.pop().layout().holeCard());
+        assertEquals(2, beam.levels());
+        assertNull(beam.pop());
+        assertEquals(3, beam.dropped());
+    }
+
+    /**
+     * Tests that child logs share their parent's moves without changing them
+     */
+    @Test
+    public void moveLogTest() {
+        MoveLog parent = MoveLog.EMPTY.append(0, 26).append(4, -21);
+        MoveLog child = parent.append(-1, 21);
+        assertEquals(2, parent.length());
+        assertEquals(3, child.length());
+        assertSame(parent, child.previous());
+        assertEquals(-1, child.lastPile());
+        assertEquals(21, child.lastCard());
+
+        ArrayList<Tuple> tuples = child.toList();
+        assertEquals(new Tuple(0, 26), tuples.get(0));
+        assertEquals(new Tuple(-1, 21), tuples.get(2));
+        assertEquals(child, MoveLog.fromList(tuples));
+        assertNotEquals(parent, child);
+        assertNotEquals(child, parent.append(-1, 22));
+
+        Node node = new Node(layout, child);
+        assertEquals(3, node.depth());
+        assertEquals(tuples, node.log());
+    }
+
+    /**
+     * Tests that the concurrent state set adds each key once, including keys that overflow the table,
+     * and that keys which fit in neither table are reported as new but not stored
+     */
+    @Test
+    public void concurrentStateSetTest() {
+        ConcurrentStateSet set = new ConcurrentStateSet(1 << 13);
+        assertEquals(1024, set.capacity());
+        assertEquals(0, set.overflowCapacity());
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        for (int i = 1; i < 1100; i++) {
+            assertTrue(set.add(Zobrist.mix(i)));
+        }
+        assertEquals(1100, set.size());
+        // The table holds 1024 keys so some of these are in the overflow table
+        assertEquals(256, set.overflowCapacity());
+        assertFalse(set.isFull());
+        for (int i = 1; i < 1100; i++) {
+            assertTrue(set.contains(Zobrist.mix(i)));
+            assertFalse(set.add(Zobrist.mix(i)));
+        }
+        assertFalse(set.contains(Zobrist.mix(1100)));
+
+        // Fill both tables
+        for (int i = 1100; i < 2000; i++) {
+            set.add(Zobrist.mix(i));
+        }
+        assertTrue(set.isFull());
+        assertEquals(2000, set.size() + set.dropped());
+        assertTrue(set.size() <= set.capacity() + set.overflowCapacity());
+        for (int i = 1; i < 2000; i++) {
+            // A dropped key is still new, a stored one is not
+            assertEquals(!set.contains(Zobrist.mix(i)), set.add(Zobrist.mix(i)));
+        }
+        set.clear();
+        assertEquals(0, set.size());
+        assertFalse(set.isFull());
+        assertFalse(set.contains(0));
+
+        // Small deals get a small table
+        BHLayout small = new BHLayout(new ArrayList<>(Arrays.asList(13, 4, 2, 1, 2, 3, -1, 4, -1)));
+        assertTrue(new ConcurrentStateSet(ConcurrentStateSet.budget(small, false)).capacity() < 1024);
+        // The worm hole and the hole card can hold any card, so a worm hole deal has far more states
+        assertEquals(53 * 53 * 3 * 2 * 2 * Long.BYTES, ConcurrentStateSet.budget(small, true));
+        BHLayout standard = new BHLayout(13, 4, 17);
+        standard.randomise(1);
+        assertEquals(ConcurrentStateSet.DEFAULT_BUDGET, ConcurrentStateSet.budget(standard, false));
+        assertEquals(ConcurrentStateSet.DEFAULT_BUDGET, ConcurrentStateSet.budget(standard, true));
+    }
+
+    /**
+     * Stress tests the concurrent state set with many threads adding overlapping keys at once
+     * Every key must be added by exactly one thread
+     */
+    @Test
+    public void concurrentStateSetStressTest() throws InterruptedException {
+        int threads = 8;
+        int keys = 200000;
+        // Small enough that some keys spill into the overflow table
+        ConcurrentStateSet set = new ConcurrentStateSet(1 << 21);
+        AtomicIntegerArray wins = new AtomicIntegerArray(keys);
+        AtomicInteger added = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int offset = t * 7919;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // Each thread walks every key in a different order
+                for (int i = 0; i < keys; i++) {
+                    int k = (i + offset) % keys;
+                    if (set.add(Zobrist.mix(k))) {
+                        wins.incrementAndGet(k);
+                        added.incrementAndGet();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertTrue(set.overflowCapacity() > 0);
+        assertFalse(set.isFull());
+        assertEquals(keys, added.get());
+        assertEquals(keys, set.size());
+        for (int i = 0; i < keys; i++) {
+            assertEquals(1, wins.get(i));
+            assertTrue(set.contains(Zobrist.mix(i)));
+        }
+    }
+
 }
@@ -0,0 +1,161 @@
+package types;
+
+import layouts.BHLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+
+/**
+ * Frontier for a beam search, which expands a search tree one level at a time and keeps only the best nodes of
+ * each level.
+ *
+ * Nodes are popped from the current level, best first, while the nodes pushed meanwhile are held back as the next
+ * level. Once the current level is used up, the best width nodes of the next level by priority become the current
+ * level and the rest are dropped. A solver expanding one node at a time therefore searches level by level without
+ * knowing it. Nodes with equal priority are taken last in, first out, as in PriorityFrontier.
+ *
+ * Different orders of the same moves often lead to the same state, so only the first copy of a state is kept
+ * in a level. Otherwise copies crowd other states out of the beam only to be filtered by the solver.
+ */
+public class BeamFrontier implements Frontier {
+
+    private final ToIntFunction<Node> priority;
+
+    private final int width;
+
+    // Current level in popping order, and the index of the next node to pop
+    private Node[] current = new Node[0];
+    private int position = 0;
+
+    // Nodes pushed since the current level was chosen, with their priorities
+    private final ArrayList<Node> next = new ArrayList<>();
+    private int[] priorities = new int[BHLayout.PAIR];
+
+    // Number of nodes dropped from levels wider than the beam
+    private long dropped = 0;
+
+    // Sort keys of the next level, reused from level to level
+    private long[] order = new long[0];
+
+    // States already taken from the next level, reused from level to level
+    private final TranspositionTable seen = new TranspositionTable();
+
+    // Number of levels chosen so far
+    private int levels = 0;
+
+
+    @Override
+    public void push(Node node) {
+        if (next.size() == priorities.length) {
+            priorities = Arrays.copyOf(priorities, priorities.length * 2);
+        }
+        priorities[next.size()] = priority.applyAsInt(node);
+        next.add(node);
+    }
+
+    @Override
+    public Node pop() {
+        if (position == current.length) {
+            if (next.isEmpty()) {
+                return null;
+            }
+            current = select();
+            position = 0;
+            levels++;
+        }
+        Node node = current[position];
+        current[position++] = null;
+        return node;
+    }
+
+    @Override
+    public int size() {
+        return current.length - position + Math.min(next.size(), width);
+    }
+
+    /**
+     * @return number of nodes dropped from levels wider than the beam
+     */
+    public long dropped() {
+        return dropped;
+    }
+
+    /**
+     * @return number of levels taken into the beam so far
+     */
+    public int levels() {
+        return levels;
+    }
+
+    @Override
+    public ArrayList<Node> toList() {
+        ArrayList<Node> list = new ArrayList<>(size());
+        for (int i = position; i < current.length; i++) {
+            list.add(current[i]);
+        }
+        int[] chosen = new int[Math.min(next.size(), width)];
+        int kept = Math.min(best(chosen), chosen.length);
+        for (int i = 0; i < kept; i++) {
+            list.add(next.get(chosen[i]));
+        }
+        return list;
+    }
+
+    /**
+     * Takes the best nodes of the next level as the new current level, dropping the rest
+     * @return new current level in popping order
+     */
+    private Node[] select() {
+        int[] chosen = new int[Math.min(next.size(), width)];
+        int states = best(chosen);
+        int kept = Math.min(states, chosen.length);
+        Node[] level = new Node[kept];
+        for (int i = 0; i < kept; i++) {
+            level[i] = next.get(chosen[i]);
+        }
+        // Copies of a state are not counted as dropped, so a beam that only ever loses copies is still exhaustive
+        dropped += states - kept;
+        next.clear();
+        return level;
+    }
+
+    /**
+     * Finds the best nodes of the next level with different states, up to the width of the beam
+     * @param chosen filled with indexes into the next level in popping order, as many as fit
+     * @return number of different states in the next level
+     */
+    private int best(int[] chosen) {
+        int count = next.size();
+        if (order.length < count) {
+            order = new long[Math.max(count, order.length * 2)];
+        }
+        // Sort on priority, then on the latest pushed, packed into one primitive so no comparator is needed
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) priorities[i] << Integer.SIZE) | (Integer.MAX_VALUE - i);
+        }
+        Arrays.sort(order, 0, count);
+        seen.clear();
+        int states = 0;
+        for (int i = 0; i < count; i++) {
+            int index = Integer.MAX_VALUE - (int) order[i];
+            if (!seen.visit(next.get(index).layout().stateKey(), BHLayout.ZERO)) {
+                if (states < chosen.length) {
+                    chosen[states] = index;
+                }
+                states++;
+            }
+        }
+        return states;
+    }
+
+    /**
+     * @param priority function giving the priority of a node, lower values are kept first
+     * @param width largest number of nodes kept from each level, at least one
+     */
+    public BeamFrontier(ToIntFunction<Node> priority, int width) {
+        this.priority = priority;
+        this.width = Math.max(width, BHLayout.ONE);
+    }
+}
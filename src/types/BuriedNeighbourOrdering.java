@@ -0,0 +1,74 @@
+package types;
+
+import layouts.BHLayout;
+
+import java.util.Arrays;
+
+
+/**
+ * Ordering which tries first the cards whose rank neighbours are buried the deepest.
+ *
+ * The score of a card is the number of cards still lying on top of every card of an adjacent rank.
+ * A card whose neighbours are all near the top of their piles can wait, as there will be other chances
+ * to play it. The position of every card is recorded once from the starting layout, so scoring a card
+ * only looks at the cards of the two adjacent ranks.
+ */
+public class BuriedNeighbourOrdering implements MoveOrdering {
+
+    // Largest card tracked, higher cards in very large decks score nothing
+    private static final int MAX_CARDS = 1 << 24;
+
+    // Pile and position of every card in the starting layout, -1 if the card was not dealt
+    private int[] piles = new int[0];
+
+    private int[] positions = new int[0];
+
+    @Override
+    public void start(BHLayout root) {
+        int cards = Math.min(Math.max(root.cardsInDeck(), BHLayout.ZERO), MAX_CARDS);
+        piles = new int[cards + 1];
+        positions = new int[cards + 1];
+        Arrays.fill(piles, BHLayout.ERR);
+        for (int pile = 0; pile < root.numPiles(); pile++) {
+            for (int position = 0; position < root.pileSize(pile); position++) {
+                int card = root.cardAt(pile, position);
+                if (card > BHLayout.ZERO && card <= cards) {
+                    piles[card] = pile;
+                    positions[card] = position;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int score(BHLayout layout, int pile, int card) {
+        int rank = layout.getCardRank(card);
+        if (rank == BHLayout.ERR) {
+            return BHLayout.ZERO;
+        }
+        int up = layout.rankAbove(rank);
+        int down = layout.rankBelow(rank);
+        int score = buried(layout, up);
+        if (down != up) {
+            score += buried(layout, down);
+        }
+        return score;
+    }
+
+    /**
+     * Counts the cards lying on top of every card of a rank that is still on the piles
+     * @param layout
+     * @param rank
+     * @return number of cards on top
+     */
+    private int buried(BHLayout layout, int rank) {
+        int total = 0;
+        for (int card = rank; card < piles.length; card += layout.numRanks()) {
+            int pile = piles[card];
+            if (pile != BHLayout.ERR && positions[card] < layout.pileSize(pile)) {
+                total += layout.pileSize(pile) - 1 - positions[card];
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,16 @@
+package types;
+
+import layouts.BHLayout;
+
+
+/**
+ * Heuristic which expands the state with the fewest cards left.
+ * Ties are broken last in first out, so this searches the same way as a depth-first search.
+ */
+public class CardsHeuristic implements Heuristic {
+
+    @Override
+    public int estimate(BHLayout layout) {
+        return layout.cardsLeft();
+    }
+}
@@ -0,0 +1,227 @@
+package types;
+
+import layouts.BHLayout;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class defines a set of 64-bit state keys that many search threads can add to at once without locking.
+ *
+ * Keys live in a fixed size open-addressing table of primitive longs. A thread claims an empty slot with a
+ * single compare-and-set, so no thread ever waits on another and no key is boxed. Keys are never removed
+ * while threads are searching, which means a key that finds every slot near its home taken will find them
+ * taken forever. Such keys go to a second, smaller table of the same kind, allocated the first time a key
+ * spills. A key that finds no room in either table is not stored and add still reports it as new, so the
+ * set is full from then on. Forgetting a state is safe for a visited or dead set, as the search may only
+ * visit it again, but anything that relies on a key being absent must check isFull.
+ */
+public class ConcurrentStateSet {
+
+    /**
+     * Default memory budget of the table in bytes, the overflow table takes up to a quarter as much again
+     */
+    public static final long DEFAULT_BUDGET = 64L << 20;
+
+    // Number of slots searched from a key's home slot before a key goes to the overflow table
+    private static final int PROBES = 32;
+
+    // Number of slots searched in the overflow table before a key is dropped
+    private static final int OVERFLOW_PROBES = PROBES * 4;
+
+    // Marks an empty slot, real keys of zero are moved to ZERO_KEY
+    private static final long EMPTY = 0L;
+    private static final long ZERO_KEY = 0x8000000000000000L;
+
+    // Results of probing a single table
+    private static final int ADDED = 0;
+    private static final int PRESENT = 1;
+    private static final int NO_ROOM = 2;
+    private static final int ABSENT = 3;
+
+    private final AtomicLongArray keys;
+
+    private final int mask;
+
+    // Allocated when the first key spills, a quarter the size of the table
+    private final AtomicReference<AtomicLongArray> overflow = new AtomicReference<>();
+
+    private final LongAdder size = new LongAdder();
+
+    // Number of times add found no room for a key
+    private final LongAdder dropped = new LongAdder();
+
+
+    // Getters
+    public long size() {
+        return size.sum();
+    }
+
+    public int capacity() {
+        return keys.length();
+    }
+
+    public int overflowCapacity() {
+        AtomicLongArray table = overflow.get();
+        return table == null ? 0 : table.length();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return true if a key has been dropped, so contains may miss keys that were added
+     */
+    public boolean isFull() {
+        return dropped.sum() > 0;
+    }
+
+
+    /**
+     * Memory budget for the states of a deal, no more than the default.
+     * In black hole a state is set by the height of each pile and the pile the hole card was played from. In worm
+     * hole the parked card may be any card taken from a pile, and the hole card may be any card played out of the
+     * worm hole, so each counts as any card of the deck. The set never needs more slots than there are such states.
+     * @param layout starting layout of the deal
+     * @param isWorm is the deal a worm hole game
+     * @return number of bytes for the table
+     */
+    public static long budget(BHLayout layout, boolean isWorm) {
+        // Twice as many slots as states
+        int stateBytes = 2 * Long.BYTES;
+        double cards = (double) layout.numRanks() * layout.numSuits();
+        double states = isWorm ? (cards + 1) * (cards + 1) : layout.numPiles() + 1;
+        for (int p = 0; p < layout.numPiles() && states * stateBytes < DEFAULT_BUDGET; p++) {
+            states *= layout.pileSize(p) + 1;
+        }
+        return (long) Math.min(DEFAULT_BUDGET, states * stateBytes);
+    }
+
+    /**
+     * Claims a slot for a key in a table
+     * @return ADDED, PRESENT, or NO_ROOM if every slot searched holds another key
+     */
+    private static int add(AtomicLongArray table, long key, int index, int probes) {
+        int mask = table.length() - 1;
+        for (int i = 0; i < probes; i++) {
+            int slot = (index + i) & mask;
+            long k = table.get(slot);
+            if (k == EMPTY) {
+                if (table.compareAndSet(slot, EMPTY, key)) {
+                    return ADDED;
+                }
+                // Another thread claimed the slot first, it may have stored this very key
+                k = table.get(slot);
+            }
+            if (k == key) {
+                return PRESENT;
+            }
+        }
+        return NO_ROOM;
+    }
+
+    /**
+     * Looks a key up in a table
+     * @return PRESENT, ABSENT, or NO_ROOM if every slot searched holds another key
+     */
+    private static int find(AtomicLongArray table, long key, int index, int probes) {
+        int mask = table.length() - 1;
+        for (int i = 0; i < probes; i++) {
+            long k = table.get((index + i) & mask);
+            if (k == key) {
+                return PRESENT;
+            }
+            if (k == EMPTY) {
+                return ABSENT;
+            }
+        }
+        return NO_ROOM;
+    }
+
+
+    /**
+     * Adds a key to the set
+     * @param key
+     * @return true if the key was added or there was no room for it, false if it was already present
+     */
+    public boolean add(long key) {
+        key = key == EMPTY ? ZERO_KEY : key;
+        int result = add(keys, key, home(key, mask), PROBES);
+        if (result == NO_ROOM) {
+            AtomicLongArray table = overflow.get();
+            if (table == null) {
+                overflow.compareAndSet(null, new AtomicLongArray(Math.max(keys.length() / 4, PROBES)));
+                table = overflow.get();
+            }
+            result = add(table, key, spill(key, table), OVERFLOW_PROBES);
+        }
+        if (result == ADDED) {
+            size.increment();
+        }
+        else if (result == NO_ROOM) {
+            dropped.increment();
+        }
+        return result != PRESENT;
+    }
+
+    /**
+     * Checks whether a key is in the set
+     * @param key
+     * @return true if present
+     */
+    public boolean contains(long key) {
+        key = key == EMPTY ? ZERO_KEY : key;
+        int result = find(keys, key, home(key, mask), PROBES);
+        if (result != NO_ROOM) {
+            return result == PRESENT;
+        }
+        AtomicLongArray table = overflow.get();
+        return table != null && find(table, key, spill(key, table), OVERFLOW_PROBES) == PRESENT;
+    }
+
+    /**
+     * Removes every key. Must not be called while other threads are using the set.
+     */
+    public void clear() {
+        for (int i = 0; i < keys.length(); i++) {
+            keys.set(i, EMPTY);
+        }
+        overflow.set(null);
+        size.reset();
+        dropped.reset();
+    }
+
+    /**
+     * Home slot of a key. Keys are already well mixed, so the low bits are used directly.
+     */
+    private static int home(long key, int mask) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    /**
+     * Home slot of a key in the overflow table, taken from other bits than its home in the table
+     */
+    private static int spill(long key, AtomicLongArray table) {
+        return (int) (key >>> 17) & (table.length() - 1);
+    }
+
+
+    // Constructors
+    public ConcurrentStateSet() {
+        this(DEFAULT_BUDGET);
+    }
+
+    /**
+     * @param budget number of bytes the table may use, rounded down to a power of two number of slots
+     */
+    public ConcurrentStateSet(long budget) {
+        int capacity = PROBES;
+        while (capacity < (1 << 30) && (long) capacity * 2 * Long.BYTES <= budget) {
+            capacity *= 2;
+        }
+        this.keys = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+    }
+}
@@ -0,0 +1,41 @@
+package types;
+
+import java.util.ArrayList;
+
+
+/**
+ * This interface defines the frontier of a search: the nodes that have been generated but not yet expanded.
+ * The order in which an implementation gives nodes back decides the search strategy.
+ */
+public interface Frontier {
+
+    /**
+     * Adds a node to the frontier
+     * @param node
+     */
+    void push(Node node);
+
+    /**
+     * Removes the next node to expand
+     * @return the next node or null if the frontier is empty
+     */
+    Node pop();
+
+    /**
+     * @return number of nodes in the frontier
+     */
+    int size();
+
+    /**
+     * @return true if there are no nodes left to expand
+     */
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Copies the nodes in the frontier in the order they would be popped
+     * @return new list of nodes
+     */
+    ArrayList<Node> toList();
+}
@@ -0,0 +1,57 @@
+package types;
+
+import layouts.BHLayout;
+
+
+/**
+ * This interface defines an estimate of how far a state is from being solved, used by a best-first search
+ * to decide which state to expand next.
+ *
+ * Every black hole solution has one move per card, so all states are the same distance from a solution if
+ * they have one. An estimate is therefore a guess at how likely a state is to lead to a solution, weighed
+ * against how many cards it has left, rather than a bound on the moves still needed.
+ */
+public interface Heuristic {
+
+    /**
+     * Names accepted by create
+     */
+    String[] NAMES = {"CARDS", "STUCK", "MOBILITY"};
+
+    /**
+     * Estimates how far a state is from being solved
+     * @param layout
+     * @return estimate, states with lower estimates are expanded first
+     */
+    int estimate(BHLayout layout);
+
+    /**
+     * Priority of a node in a best-first frontier or a beam, putting solutions before everything else
+     * @param heuristic
+     * @param node
+     * @return priority, lower values come first
+     */
+    static int priority(Heuristic heuristic, Node node) {
+        BHLayout layout = node.layout();
+        return layout.cardsLeft() == BHLayout.ZERO ? Integer.MIN_VALUE : heuristic.estimate(layout);
+    }
+
+    /**
+     * Creates a new heuristic from its name, ignoring case
+     * @param name one of NAMES
+     * @return a new heuristic
+     * @throws IllegalArgumentException if the name is not recognised
+     */
+    static Heuristic create(String name) {
+        switch (name.toUpperCase()) {
+            case "CARDS":
+                return new CardsHeuristic();
+            case "STUCK":
+                return new StuckHeuristic();
+            case "MOBILITY":
+                return new MobilityHeuristic();
+            default:
+                throw new IllegalArgumentException("Unknown heuristic " + name);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package types;
+
+import layouts.BHLayout;
+
+
+/**
+ * Ordering which learns from the subtrees already searched.
+ *
+ * Every time playing a card leads to a dead end its penalty goes up, and cards with the lowest
+ * penalties are tried first. Cards that keep getting stuck early on are pushed to the back,
+ * so the search spends its time on the moves that have so far led further.
+ */
+public class HistoryOrdering implements MoveOrdering {
+
+    // Largest card tracked, higher cards in very large decks are never penalised
+    private static final int MAX_CARDS = 1 << 24;
+
+    // Number of dead ends reached by playing each card
+    private int[] penalties = new int[0];
+
+    @Override
+    public void start(BHLayout root) {
+        penalties = new int[Math.min(Math.max(root.cardsInDeck(), BHLayout.ZERO), MAX_CARDS) + 1];
+    }
+
+    @Override
+    public int score(BHLayout layout, int pile, int card) {
+        return card > BHLayout.ZERO && card < penalties.length ? -penalties[card] : BHLayout.ZERO;
+    }
+
+    @Override
+    public void deadEnd(BHLayout layout, int pile, int card) {
+        card = Math.abs(card);
+        if (card > BHLayout.ZERO && card < penalties.length && penalties[card] < Integer.MAX_VALUE) {
+            penalties[card]++;
+        }
+    }
+}
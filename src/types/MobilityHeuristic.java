@@ -0,0 +1,35 @@
+package types;
+
+import layouts.BHLayout;
+import layouts.WHLayout;
+
+
+/**
+ * Heuristic which expands states with few cards left and many moves out of them.
+ * The estimate is the cards left less twice the number of cards that can be played onto the hole card now,
+ * so a state with more ways forward is worth a card more than one with a single move.
+ */
+public class MobilityHeuristic implements Heuristic {
+
+    // Cards a move out of a state is worth
+    private static final int WEIGHT = BHLayout.PAIR;
+
+    @Override
+    public int estimate(BHLayout layout) {
+        int hole = layout.holeCard();
+        int moves = 0;
+        for (int pile = 0; pile < layout.numPiles(); pile++) {
+            int card = layout.topCard(pile);
+            if (card != BHLayout.ERR && layout.isAdjacent(card, hole)) {
+                moves++;
+            }
+        }
+        if (layout instanceof WHLayout) {
+            int worm = layout.topCard(BHLayout.ERR);
+            if (worm != BHLayout.ERR && layout.isAdjacent(worm, hole)) {
+                moves++;
+            }
+        }
+        return layout.cardsLeft() - WEIGHT * moves;
+    }
+}
@@ -0,0 +1,145 @@
+package types;
+
+import java.util.ArrayList;
+
+
+/**
+ * This class defines a persistent log of the moves made to reach a search state.
+ *
+ * Each entry only stores its own move and a link to the log it extends, so a child node shares its
+ * parent's history and recording a move costs one small object whatever the depth of the search.
+ * Tuples are only built when the whole log is needed, e.g. to report a solution.
+ */
+public final class MoveLog {
+
+    /**
+     * Log with no moves in it
+     */
+    public static final MoveLog EMPTY = new MoveLog(null, 0, 0);
+
+    // Log this entry extends, null for the empty log
+    private final MoveLog previous;
+
+    private final int pile;
+
+    private final int card;
+
+    // Number of moves in the log up to and including this one
+    private final int length;
+
+
+    // Getters
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return pile of the most recent move
+     */
+    public int lastPile() {
+        return pile;
+    }
+
+    /**
+     * @return card of the most recent move, negative if it was moved to the worm hole
+     */
+    public int lastCard() {
+        return card;
+    }
+
+    /**
+     * @return log without its most recent move
+     */
+    public MoveLog previous() {
+        return previous == null ? this : previous;
+    }
+
+    /**
+     * Creates a new log with one more move, leaving this one unchanged
+     * @param pile
+     * @param card
+     * @return extended log
+     */
+    public MoveLog append(int pile, int card) {
+        return new MoveLog(this, pile, card);
+    }
+
+    /**
+     * Builds the list of tuples for this log, oldest move first
+     * @return new list
+     */
+    public ArrayList<Tuple> toList() {
+        Tuple[] tuples = new Tuple[length];
+        MoveLog entry = this;
+        for (int i = length - 1; i >= 0; i--) {
+            tuples[i] = new Tuple(entry.pile, entry.card);
+            entry = entry.previous;
+        }
+        ArrayList<Tuple> list = new ArrayList<>(length);
+        for (Tuple tuple : tuples) {
+            list.add(tuple);
+        }
+        return list;
+    }
+
+    /**
+     * Creates a log from a list of tuples
+     * @param tuples oldest move first
+     * @return new log
+     */
+    public static MoveLog fromList(ArrayList<Tuple> tuples) {
+        MoveLog log = EMPTY;
+        for (Tuple tuple : tuples) {
+            log = log.append(tuple.getPile(), tuple.getCard());
+        }
+        return log;
+    }
+
+    /**
+     * Compares the moves of two logs
+     * @param o
+     * @return true if both logs hold the same moves in the same order
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof MoveLog)) {
+            return false;
+        }
+        MoveLog a = this;
+        MoveLog b = (MoveLog) o;
+        if (a.length != b.length) {
+            return false;
+        }
+        // Shared histories can stop the comparison early
+        while (a != b) {
+            if (a.pile != b.pile || a.card != b.card) {
+                return false;
+            }
+            a = a.previous;
+            b = b.previous;
+        }
+        return true;
+    }
+
+    /**
+     * Overridden hash code function
+     * @return hash code
+     */
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (MoveLog entry = this; entry.length > 0; entry = entry.previous) {
+            hash = 31 * (31 * hash + entry.pile) + entry.card;
+        }
+        return hash;
+    }
+
+
+    // Constructor
+    private MoveLog(MoveLog previous, int pile, int card) {
+        this.previous = previous;
+        this.pile = pile;
+        this.card = card;
+        this.length = previous == null ? 0 : previous.length + 1;
+    }
+}
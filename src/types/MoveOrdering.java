@@ -0,0 +1,72 @@
+package types;
+
+import layouts.BHLayout;
+
+
+/**
+ * This interface defines the order in which a solver tries the moves out of a state.
+ *
+ * Each move is given a score, and moves with higher scores are tried first. Moves with equal scores
+ * are tried from the highest pile down, which is the order the solvers have always used, so an ordering
+ * that scores every move the same changes nothing.
+ */
+public interface MoveOrdering {
+
+    /**
+     * Names accepted by create
+     */
+    String[] NAMES = {"PILE", "TALLEST", "BURIED", "HISTORY"};
+
+    /**
+     * Called once with the starting layout before a search begins
+     * @param root
+     */
+    default void start(BHLayout root) {
+    }
+
+    /**
+     * Scores a move of the top card of a pile
+     * @param layout state the move is made from
+     * @param pile
+     * @param card top card of the pile
+     * @return score, higher scores are tried first
+     */
+    int score(BHLayout layout, int pile, int card);
+
+    /**
+     * Called when a move leads to a state with no moves out of it that is not a solution
+     * @param layout the dead end state
+     * @param pile pile the last card came from
+     * @param card the last card moved
+     */
+    default void deadEnd(BHLayout layout, int pile, int card) {
+    }
+
+    /**
+     * @return true if every move scores the same, so moves never need sorting
+     */
+    default boolean isDefault() {
+        return false;
+    }
+
+    /**
+     * Creates a new ordering from its name, ignoring case
+     * @param name one of NAMES
+     * @return a new ordering
+     * @throws IllegalArgumentException if the name is not recognised
+     */
+    static MoveOrdering create(String name) {
+        switch (name.toUpperCase()) {
+            case "PILE":
+                return new PileOrdering();
+            case "TALLEST":
+                return new TallestPileOrdering();
+            case "BURIED":
+                return new BuriedNeighbourOrdering();
+            case "HISTORY":
+                return new HistoryOrdering();
+            default:
+                throw new IllegalArgumentException("Unknown move ordering " + name);
+        }
+    }
+}
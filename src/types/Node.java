@@ -3,7 +3,6 @@ package types;
 import layouts.BHLayout;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.Objects;
 
 /**
@@ -14,31 +13,40 @@ public class Node {
     // Current puzzle layout ( may be at any point in the puzzle )
     private BHLayout layout;
 
-    // This stores a list of tuples representing the solution log (i.e. the steps in the solution )
-    private ArrayList<Tuple> log = new ArrayList<>();
+    // This stores the moves representing the solution log (i.e. the steps in the solution )
+    // The log is shared with the parent node, so creating a child only adds one entry
+    private MoveLog moves = MoveLog.EMPTY;
 
     // Getters
     public BHLayout layout() {
         return this.layout;
     }
 
+    public MoveLog moves() {
+        return this.moves;
+    }
+
+    /**
+     * @return number of moves made to reach this node
+     */
+    public int depth() {
+        return this.moves.length();
+    }
+
+    /**
+     * Builds the log as a list of tuples, oldest move first
+     * @return a new array list
+     */
     public ArrayList<Tuple> log() {
-        return this.log;
+        return this.moves.toList();
     }
 
     /**
-     * Deep copies the log to be used when creating new nodes without changing the original log
+     * Copies the log to be used when creating new nodes without changing the original log
      * @return a new array list
      */
     public ArrayList<Tuple> copyLog() {
-        Iterator<Tuple> iterator = this.log.iterator();
-        ArrayList<Tuple> copy = new ArrayList<>();
-        while (iterator.hasNext()) {
-            Tuple tuple = iterator.next();
-            copy.add(new Tuple(tuple.getPile(), tuple.getCard()));
-        }
-
-        return copy;
+        return this.moves.toList();
     }
 
 
@@ -50,8 +58,12 @@ public class Node {
 
     public Node(BHLayout layout, ArrayList<Tuple> log) {
         this.layout = layout;
-        this.log = log;
-        this.log = copyLog();
+        this.moves = MoveLog.fromList(log);
+    }
+
+    public Node(BHLayout layout, MoveLog moves) {
+        this.layout = layout;
+        this.moves = moves;
     }
 
     /**
@@ -71,16 +83,7 @@ public class Node {
             return false;
         }
         // Compare the log (steps made so far)
-        if (log.size() != object.log().size()) {
-            return false;
-        }
-        for (int i = 0; i < log.size(); i++) {
-            ArrayList<Tuple> oLog = object.log();
-            equals = equals && log.get(i).getCard() == oLog.get(i).getCard();
-            equals = equals && log.get(i).getPile() == oLog.get(i).getPile();
-        }
-
-        return equals;
+        return this.moves.equals(object.moves());
     }
 
     /**
@@ -89,7 +92,7 @@ public class Node {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(this.layout.hashCode(), this.log().size());
+        return Objects.hash(this.layout.hashCode(), this.depth());
     }
 
 
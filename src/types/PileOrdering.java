@@ -0,0 +1,20 @@
+package types;
+
+import layouts.BHLayout;
+
+
+/**
+ * Default ordering which tries moves from the highest pile down, whatever the state
+ */
+public class PileOrdering implements MoveOrdering {
+
+    @Override
+    public int score(BHLayout layout, int pile, int card) {
+        return BHLayout.ZERO;
+    }
+
+    @Override
+    public boolean isDefault() {
+        return true;
+    }
+}
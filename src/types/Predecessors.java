@@ -0,0 +1,120 @@
+package types;
+
+import layouts.BHLayout;
+
+
+/**
+ * Counts the cards that may be played straight before each card left in a state.
+ *
+ * Every card left must at some point be played straight after a card of an adjacent rank, or onto the
+ * current hole card if it is played next. In black hole the card played just before it must leave it
+ * on top of its pile, so it can only be:
+ *   - a card of an adjacent rank in another pile,
+ *   - a card of an adjacent rank above it in the same pile, never one below it,
+ *   - the hole card, if the card is on top of its pile now.
+ *
+ * In worm hole a card can be moved out of the way into the worm hole, so any remaining card of an
+ * adjacent rank may come before it, and the hole card may if the card is on top or in the worm hole.
+ *
+ * A card with no such cards can never be played, which Pruner uses to reject states, and a card with one
+ * is stuck, which StuckHeuristic counts. The counts are kept between calls so that nothing is allocated.
+ */
+public class Predecessors {
+
+    // Number of cards of each rank left on the piles and in the worm hole
+    private int[] total = new int[0];
+
+    // Number of cards of each rank at or below the card being checked in its pile
+    private int[] inPile = new int[0];
+
+    /**
+     * Counts the cards left which have few cards that may be played straight before them
+     * @param layout
+     * @param isWorm is the layout a worm hole game
+     * @param limit largest number of cards before a card for it to be counted
+     * @return number of cards with at most limit cards before them, or -1 if a card is not in the deck
+     */
+    public int atMost(BHLayout layout, boolean isWorm, int limit) {
+        int ranks = layout.numRanks();
+        if (total.length <= ranks) {
+            total = new int[ranks + 1];
+            inPile = new int[ranks + 1];
+        }
+        int numPiles = layout.numPiles();
+        int worm = isWorm ? layout.topCard(BHLayout.ERR) : BHLayout.ERR;
+        int p, i;
+
+        // Count the cards left of each rank, any card outside the deck can never be played
+        boolean outside = false;
+        for (p = 0; p < numPiles; p++) {
+            for (i = 0; i < layout.pileSize(p); i++) {
+                outside |= !count(layout, layout.cardAt(p, i), total, BHLayout.ONE);
+            }
+        }
+        if (worm != BHLayout.ERR) {
+            outside |= !count(layout, worm, total, BHLayout.ONE);
+        }
+
+        int found = 0;
+        if (!outside) {
+            int hole = layout.holeCard();
+            for (p = 0; p < numPiles; p++) {
+                int size = layout.pileSize(p);
+                if (!isWorm) {
+                    for (i = 0; i < size; i++) {
+                        count(layout, layout.cardAt(p, i), inPile, BHLayout.ONE);
+                    }
+                }
+                // Work down from the top, so inPile only holds the card and the cards below it
+                for (i = size - 1; i >= 0; i--) {
+                    int card = layout.cardAt(p, i);
+                    int before = layout.adjacentCount(card, total)
+                            - (isWorm ? BHLayout.ZERO : layout.adjacentCount(card, inPile));
+                    if (i == size - 1 && layout.isAdjacent(card, hole)) {
+                        before++;
+                    }
+                    if (before <= limit) {
+                        found++;
+                    }
+                    if (!isWorm) {
+                        count(layout, card, inPile, BHLayout.ERR);
+                    }
+                }
+            }
+            if (worm != BHLayout.ERR) {
+                int before = layout.adjacentCount(worm, total) + (layout.isAdjacent(worm, hole) ? BHLayout.ONE : BHLayout.ZERO);
+                if (before <= limit) {
+                    found++;
+                }
+            }
+        }
+
+        // Reset the counts by taking every card away again
+        for (p = 0; p < numPiles; p++) {
+            for (i = 0; i < layout.pileSize(p); i++) {
+                count(layout, layout.cardAt(p, i), total, BHLayout.ERR);
+            }
+        }
+        if (worm != BHLayout.ERR) {
+            count(layout, worm, total, BHLayout.ERR);
+        }
+        return outside ? BHLayout.ERR : found;
+    }
+
+    /**
+     * Adds to the count of a card's rank, ignoring cards outside the deck
+     * @param layout
+     * @param card
+     * @param counts cards left of each rank
+     * @param change amount added
+     * @return false if the card is not in the deck
+     */
+    private static boolean count(BHLayout layout, int card, int[] counts, int change) {
+        int rank = layout.getCardRank(card);
+        if (rank == BHLayout.ERR) {
+            return false;
+        }
+        counts[rank] += change;
+        return true;
+    }
+}
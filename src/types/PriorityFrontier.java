@@ -0,0 +1,192 @@
+package types;
+
+import layouts.BHLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+
+/**
+ * Frontier which always pops the node with the lowest priority, backed by a binary heap.
+ * The priority of a node is worked out once when it is pushed.
+ * Nodes with equal priority are popped last in, first out, so ties are broken the same way as a depth-first search.
+ *
+ * The frontier may be given a maximum size. When a push would take it past that, only the best three quarters of
+ * the nodes are kept and the rest are dropped, so a search using it may miss solutions once anything is dropped.
+ */
+public class PriorityFrontier implements Frontier {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ToIntFunction<Node> priority;
+
+    private Node[] nodes = new Node[INITIAL_CAPACITY];
+
+    private int[] priorities = new int[INITIAL_CAPACITY];
+
+    // Order in which each node was pushed, used to break ties
+    private long[] order = new long[INITIAL_CAPACITY];
+
+    private long pushed = 0;
+
+    private int size = 0;
+
+    // Largest number of nodes held at once
+    private final int maxSize;
+
+    // Number of nodes dropped to stay within maxSize
+    private long dropped = 0;
+
+    @Override
+    public void push(Node node) {
+        if (size == maxSize) {
+            trim();
+        }
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            priorities = Arrays.copyOf(priorities, size * 2);
+            order = Arrays.copyOf(order, size * 2);
+        }
+        nodes[size] = node;
+        priorities[size] = priority.applyAsInt(node);
+        order[size] = pushed++;
+        siftUp(size++);
+    }
+
+    @Override
+    public Node pop() {
+        if (size == 0) {
+            return null;
+        }
+        Node popped = nodes[0];
+        size--;
+        move(size, 0);
+        nodes[size] = null;
+        if (size > 0) {
+            siftDown(0);
+        }
+        return popped;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of nodes dropped to keep within the maximum size
+     */
+    public long dropped() {
+        return dropped;
+    }
+
+    /**
+     * @return priority of the next node to be popped
+     */
+    public int peekPriority() {
+        return size == 0 ? Integer.MAX_VALUE : priorities[0];
+    }
+
+    @Override
+    public ArrayList<Node> toList() {
+        PriorityFrontier copy = new PriorityFrontier(priority, maxSize);
+        copy.nodes = Arrays.copyOf(nodes, nodes.length);
+        copy.priorities = Arrays.copyOf(priorities, priorities.length);
+        copy.order = Arrays.copyOf(order, order.length);
+        copy.size = size;
+        ArrayList<Node> list = new ArrayList<>(size);
+        while (!copy.isEmpty()) {
+            list.add(copy.pop());
+        }
+        return list;
+    }
+
+    /**
+     * Keeps the best three quarters of the nodes, in popping order.
+     * An array sorted into popping order is already a heap, so it needs no rebuilding.
+     */
+    private void trim() {
+        int keep = Math.max(maxSize - maxSize / 4, 1) - 1;
+        Node[] keptNodes = new Node[nodes.length];
+        int[] keptPriorities = new int[nodes.length];
+        long[] keptOrder = new long[nodes.length];
+        for (int i = 0; i < keep; i++) {
+            keptPriorities[i] = priorities[0];
+            keptOrder[i] = order[0];
+            keptNodes[i] = pop();
+        }
+        dropped += size;
+        nodes = keptNodes;
+        priorities = keptPriorities;
+        order = keptOrder;
+        size = keep;
+    }
+
+    /**
+     * Compares two heap slots
+     * @return true if slot a should be popped before slot b
+     */
+    private boolean before(int a, int b) {
+        if (priorities[a] != priorities[b]) {
+            return priorities[a] < priorities[b];
+        }
+        return order[a] > order[b];
+    }
+
+    private void move(int from, int to) {
+        nodes[to] = nodes[from];
+        priorities[to] = priorities[from];
+        order[to] = order[from];
+    }
+
+    private void swap(int a, int b) {
+        Node node = nodes[a];
+        int p = priorities[a];
+        long o = order[a];
+        move(b, a);
+        nodes[b] = node;
+        priorities[b] = p;
+        order[b] = o;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0 && before(i, (i - 1) / 2)) {
+            swap(i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && before(child + 1, child)) {
+                child++;
+            }
+            if (!before(child, i)) {
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    /**
+     * @param priority function giving the priority of a node, lower values are expanded first
+     */
+    public PriorityFrontier(ToIntFunction<Node> priority) {
+        this(priority, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param priority function giving the priority of a node, lower values are expanded first
+     * @param maxSize largest number of nodes to hold, at least one
+     */
+    public PriorityFrontier(ToIntFunction<Node> priority, int maxSize) {
+        this.priority = priority;
+        this.maxSize = Math.max(maxSize, BHLayout.ONE);
+    }
+}
@@ -0,0 +1,66 @@
+package types;
+
+import java.util.ArrayList;
+
+
+/**
+ * First in, first out frontier backed by a circular array, giving a breadth-first search.
+ */
+public class QueueFrontier implements Frontier {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Node[] nodes = new Node[INITIAL_CAPACITY];
+
+    // Index of the next node to pop
+    private int head = 0;
+
+    private int size = 0;
+
+    @Override
+    public void push(Node node) {
+        if (size == nodes.length) {
+            grow();
+        }
+        nodes[(head + size) % nodes.length] = node;
+        size++;
+    }
+
+    @Override
+    public Node pop() {
+        if (size == 0) {
+            return null;
+        }
+        Node popped = nodes[head];
+        nodes[head] = null;
+        head = (head + 1) % nodes.length;
+        size--;
+        return popped;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public ArrayList<Node> toList() {
+        ArrayList<Node> copy = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            copy.add(nodes[(head + i) % nodes.length]);
+        }
+        return copy;
+    }
+
+    /**
+     * Doubles the capacity, unwrapping the queue so the head is at index 0
+     */
+    private void grow() {
+        Node[] larger = new Node[nodes.length * 2];
+        for (int i = 0; i < size; i++) {
+            larger[i] = nodes[(head + i) % nodes.length];
+        }
+        nodes = larger;
+        head = 0;
+    }
+}
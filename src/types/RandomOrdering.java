@@ -0,0 +1,37 @@
+package types;
+
+import layouts.BHLayout;
+
+import java.util.Random;
+
+
+/**
+ * Ordering which tries the moves out of every state in a random order.
+ *
+ * Scores are drawn from a seeded generator, so the same seed always gives the same order as long as moves
+ * are scored in the same sequence.
+ */
+public class RandomOrdering implements MoveOrdering {
+
+    private final Random random;
+
+    @Override
+    public int score(BHLayout layout, int pile, int card) {
+        return random.nextInt();
+    }
+
+    /**
+     * Starts the order again from a new seed, giving the same scores as a new ordering with that seed
+     * @param seed seed of the generator
+     */
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /**
+     * @param seed seed of the generator
+     */
+    public RandomOrdering(long seed) {
+        this.random = new Random(seed);
+    }
+}
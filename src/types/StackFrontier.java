@@ -0,0 +1,51 @@
+package types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Last in, first out frontier backed by a growable array, giving a depth-first search.
+ * Pushes and pops only touch the end of the array so both are O(1).
+ */
+public class StackFrontier implements Frontier {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Node[] nodes = new Node[INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    @Override
+    public void push(Node node) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+        }
+        nodes[size++] = node;
+    }
+
+    @Override
+    public Node pop() {
+        if (size == 0) {
+            return null;
+        }
+        Node popped = nodes[--size];
+        // Let the node be garbage collected once it has been expanded
+        nodes[size] = null;
+        return popped;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public ArrayList<Node> toList() {
+        ArrayList<Node> copy = new ArrayList<>(size);
+        for (int i = size - 1; i >= 0; i--) {
+            copy.add(nodes[i]);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,25 @@
+package types;
+
+import layouts.BHLayout;
+import layouts.WHLayout;
+
+
+/**
+ * Heuristic which expands states with few cards left and few stuck cards.
+ *
+ * A card can only be played straight after a card of an adjacent rank, or onto the hole card if it is on top.
+ * In black hole the card before it cannot come from below it in its own pile. A card that has at most one card
+ * left it can follow is stuck: one wrong move elsewhere and it can never be played. The estimate is the cards
+ * left plus the stuck cards, counted by the same rules Pruner uses, see Predecessors.
+ */
+public class StuckHeuristic implements Heuristic {
+
+    private final Predecessors predecessors = new Predecessors();
+
+    @Override
+    public int estimate(BHLayout layout) {
+        int stuck = predecessors.atMost(layout, layout instanceof WHLayout, BHLayout.ONE);
+        // A card outside the deck is never played, so it adds nothing here
+        return layout.cardsLeft() + Math.max(stuck, BHLayout.ZERO);
+    }
+}
@@ -0,0 +1,16 @@
+package types;
+
+import layouts.BHLayout;
+
+
+/**
+ * Ordering which tries the top card of the tallest pile first.
+ * Tall piles are the hardest to clear, so cards are taken from them while there is still a choice.
+ */
+public class TallestPileOrdering implements MoveOrdering {
+
+    @Override
+    public int score(BHLayout layout, int pile, int card) {
+        return layout.pileSize(pile);
+    }
+}
@@ -0,0 +1,233 @@
+package types;
+
+import java.util.Arrays;
+
+/**
+ * This class defines a transposition table of 64-bit state keys used to filter visited states during a search.
+ *
+ * Keys are stored in a primitive open-addressing table, along with the depth of the search still left
+ * below each state. The table grows as it fills until it reaches its byte budget. From then on a new key
+ * that finds no free slot near its home position either replaces an older entry or is dropped, depending
+ * on the replacement policy. Forgetting a state is always safe: the search may visit it again, but it no
+ * longer runs out of memory on hard instances.
+ */
+public class TranspositionTable {
+
+    /**
+     * What to do with a new entry once the table has reached its budget
+     */
+    public enum Replacement {
+        /**
+         * Keep whichever entry has the most search left below it, as it saves the most work when hit again
+         */
+        DEPTH_PREFERRED,
+        /**
+         * Always overwrite the entry in the new key's home slot
+         */
+        ALWAYS_REPLACE
+    }
+
+    /**
+     * Default memory budget of a table in bytes
+     */
+    public static final long DEFAULT_BUDGET = 64L << 20;
+
+    /**
+     * Returned by probe when a key is not in the table
+     */
+    public static final int MISSING = -1;
+
+    // Memory used by one entry: a long key and an int depth
+    private static final int ENTRY_BYTES = Long.BYTES + Integer.BYTES;
+
+    // Number of slots searched from a key's home slot before the table counts as full there
+    private static final int PROBES = 8;
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    // Marks an empty slot, real keys of zero are moved to ZERO_KEY
+    private static final long EMPTY = 0L;
+    private static final long ZERO_KEY = 0x8000000000000000L;
+
+    private long[] keys;
+
+    private int[] depths;
+
+    private int size = 0;
+
+    // Largest capacity that fits within the budget
+    private final int maxCapacity;
+
+    private final Replacement replacement;
+
+    // Number of entries overwritten or dropped once the table was full
+    private long evictions = 0;
+
+
+    // Getters
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    public long bytesUsed() {
+        return (long) keys.length * ENTRY_BYTES;
+    }
+
+
+    /**
+     * Looks up a key in the table
+     * @param key
+     * @return the depth stored with the key or MISSING
+     */
+    public int probe(long key) {
+        key = key == EMPTY ? ZERO_KEY : key;
+        int mask = keys.length - 1;
+        int index = home(key, mask);
+        for (int i = 0; i < PROBES; i++) {
+            long k = keys[(index + i) & mask];
+            if (k == key) {
+                return depths[(index + i) & mask];
+            }
+            if (k == EMPTY) {
+                return MISSING;
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Stores a key in the table, replacing the depth if the key is already present
+     * @param key
+     * @param depth search depth left below this state
+     */
+    public void store(long key, int depth) {
+        key = key == EMPTY ? ZERO_KEY : key;
+        while (true) {
+            int mask = keys.length - 1;
+            int index = home(key, mask);
+            int victim = index;
+            for (int i = 0; i < PROBES; i++) {
+                int slot = (index + i) & mask;
+                if (keys[slot] == key || keys[slot] == EMPTY) {
+                    if (keys[slot] == EMPTY) {
+                        size++;
+                    }
+                    keys[slot] = key;
+                    depths[slot] = depth;
+                    // Grow early so that probe sequences stay short
+                    if (size * 2 > keys.length && keys.length < maxCapacity) {
+                        resize();
+                    }
+                    return;
+                }
+                if (depths[slot] < depths[victim]) {
+                    victim = slot;
+                }
+            }
+            // Every slot near home is taken, make room if the budget allows it
+            if (keys.length < maxCapacity) {
+                resize();
+                continue;
+            }
+            evictions++;
+            if (replacement == Replacement.ALWAYS_REPLACE) {
+                victim = index;
+            }
+            else if (depths[victim] > depth) {
+                // The new entry is worth less than anything already here so drop it
+                return;
+            }
+            keys[victim] = key;
+            depths[victim] = depth;
+            return;
+        }
+    }
+
+    /**
+     * Records a visit to a state
+     * @param key
+     * @param depth search depth left below this state
+     * @return true if the state was already in the table, false if it has now been added
+     */
+    public boolean visit(long key, int depth) {
+        if (probe(key) != MISSING) {
+            return true;
+        }
+        store(key, depth);
+        return false;
+    }
+
+    /**
+     * Removes every entry, keeping the current capacity
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        evictions = 0;
+    }
+
+    /**
+     * Home slot of a key. Keys are already well mixed, so the low bits are used directly.
+     */
+    private static int home(long key, int mask) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    /**
+     * Doubles the capacity and reinserts every entry
+     */
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldDepths = depths;
+        keys = new long[oldKeys.length * 2];
+        depths = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) {
+                continue;
+            }
+            int index = home(oldKeys[i], mask);
+            int j = 0;
+            while (j < PROBES && keys[(index + j) & mask] != EMPTY) {
+                j++;
+            }
+            // Very unlikely at this load, but an entry that cannot be reached by probe is forgotten
+            if (j == PROBES) {
+                size--;
+                evictions++;
+                continue;
+            }
+            keys[(index + j) & mask] = oldKeys[i];
+            depths[(index + j) & mask] = oldDepths[i];
+        }
+    }
+
+
+    // Constructors
+    public TranspositionTable() {
+        this(DEFAULT_BUDGET, Replacement.DEPTH_PREFERRED);
+    }
+
+    /**
+     * @param budget maximum number of bytes the table may use
+     * @param replacement policy used once the budget is reached
+     */
+    public TranspositionTable(long budget, Replacement replacement) {
+        int capacity = PROBES;
+        while (capacity < (1 << 30) && (long) capacity * 2 * ENTRY_BYTES <= budget) {
+            capacity *= 2;
+        }
+        this.maxCapacity = capacity;
+        this.replacement = replacement;
+        this.keys = new long[Math.min(INITIAL_CAPACITY, maxCapacity)];
+        this.depths = new int[keys.length];
+    }
+}